@@ -1,39 +1,112 @@
 // Appointment.java (CLEANED)
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+
 public class Appointment {
+    /** Start value used when the row has no usable date/time; sorts before every real appointment. */
+    public static final long UNSCHEDULED = Long.MIN_VALUE;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** DSA: Soonest first. Compares primitive longs, so sorting/queueing allocates nothing per comparison. */
+    public static final Comparator<Appointment> BY_START = Comparator.comparingLong(Appointment::getStartMinute);
+
     private final int id;
     private final int patientId; 
     private final int doctorId; 
-    private final String dateTime; // Stored as "yyyy-MM-dd HH:mm" for sorting
-    private String status;
+    private final long startMinute; // Minutes since 1970-01-01 00:00 (clinic local time), or UNSCHEDULED
+    private byte statusCode; // AppointmentStatus.getCode()
+    private final int version; // appointments.version when read; expected by DBManager.updateStatus()
 
     /**
      * The primary constructor for an Appointment object.
+     * @param startMinute Start as an epoch minute, see toEpochMinute(), or UNSCHEDULED.
+     * @param version Row version as read (0 for a row just inserted).
      */
-    public Appointment(int id, int patientId, int doctorId, String dateTime, String status) {
+    public Appointment(int id, int patientId, int doctorId, long startMinute, AppointmentStatus status, int version) {
         this.id = id;
         this.patientId = patientId;
         this.doctorId = doctorId;
-        this.dateTime = dateTime;
-        this.status = status;
+        this.startMinute = startMinute;
+        this.statusCode = status.getCode();
+        this.version = version;
     }
-    
-    // REMOVED THE BROKEN CONSTRUCTOR:
-    /*
-    public Appointment(int patientId2, int int1, int int2, String dateTime2, String string) {
-        // ... (This one was deleted)
+
+    public Appointment(int id, int patientId, int doctorId, long startMinute, AppointmentStatus status) {
+        this(id, patientId, doctorId, startMinute, status, 0);
     }
-    */
 
     public int getId() { return id; }
     public int getPatientId() { return patientId; }
     public int getDoctorId() { return doctorId; }
-    public String getDateTime() { return dateTime; }
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public long getStartMinute() { return startMinute; }
+    public AppointmentStatus getStatus() { return AppointmentStatus.fromCode(statusCode); }
+    public void setStatus(AppointmentStatus status) { this.statusCode = status.getCode(); }
+    public int getVersion() { return version; }
+
+    public boolean isScheduled() { return startMinute != UNSCHEDULED; }
+
+    /** The start as a LocalDateTime, or null if unscheduled. */
+    public LocalDateTime getStart() {
+        return isScheduled() ? toLocalDateTime(startMinute) : null;
+    }
+
+    public LocalDate getDate() {
+        return isScheduled() ? LocalDate.ofEpochDay(Math.floorDiv(startMinute, MINUTES_PER_DAY)) : null;
+    }
+
+    /** Minutes after midnight (0-1439), or -1 if unscheduled. */
+    public int getMinuteOfDay() {
+        return isScheduled() ? Math.floorMod(startMinute, MINUTES_PER_DAY) : -1;
+    }
+
+    // --- Formatting (only done when rendering) ---
+
+    /** "yyyy-MM-dd", or "N/A" if unscheduled. */
+    public String getDateText() {
+        return isScheduled() ? getDate().toString() : "N/A";
+    }
+
+    /** "HH:mm", or "N/A" if unscheduled. */
+    public String getTimeText() {
+        if (!isScheduled()) {
+            return "N/A";
+        }
+        int minuteOfDay = getMinuteOfDay();
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        char[] text = {
+            (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+            (char) ('0' + minute / 10), (char) ('0' + minute % 10)
+        };
+        return new String(text);
+    }
+
+    // --- Conversions between the compact epoch-minute form and java.time ---
+
+    /** Packs a date and time into an epoch minute; returns UNSCHEDULED if either is null. */
+    public static long toEpochMinute(LocalDate date, LocalTime time) {
+        if (date == null || time == null) {
+            return UNSCHEDULED;
+        }
+        return date.toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+
+    public static long toEpochMinute(LocalDateTime dateTime) {
+        return dateTime == null ? UNSCHEDULED : toEpochMinute(dateTime.toLocalDate(), dateTime.toLocalTime());
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMinute) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+        int minuteOfDay = Math.floorMod(epochMinute, MINUTES_PER_DAY);
+        return date.atTime(minuteOfDay / 60, minuteOfDay % 60);
+    }
 
     @Override
     public String toString() {
-        return "App ID: " + id + ", Date: " + dateTime.substring(0, 10) + 
-               ", Time: " + dateTime.substring(11) + ", Status: " + status;
+        return "App ID: " + id + ", Date: " + getDateText() + 
+               ", Time: " + getTimeText() + ", Status: " + getStatus().getLabel();
     }
-}
\ No newline at end of file
+}
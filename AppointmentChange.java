@@ -0,0 +1,23 @@
+/**
+ * One entry of the appointment_changes log: the appointment row as it was right after a booking or
+ * status change. Entries are numbered by change ID in commit-log order; a reader keeps the highest
+ * ID it has applied as its cursor (see DBManager.fetchChangesSince()).
+ */
+public class AppointmentChange {
+    private final long changeId;
+    private final Appointment row;
+
+    public AppointmentChange(long changeId, Appointment row) {
+        this.changeId = changeId;
+        this.row = row;
+    }
+
+    public long getChangeId() { return changeId; }
+    /** The appointment after the change (status and version included); null if its status was unreadable. */
+    public Appointment getRow() { return row; }
+
+    @Override
+    public String toString() {
+        return "#" + changeId + " " + row;
+    }
+}
@@ -0,0 +1,132 @@
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stand-in for cross-instance change propagation: a daemon thread periodically reads the
+ * appointment_changes log past its cursor and republishes the entries on the AppointmentEventBus,
+ * so windows see bookings and cancellations made by other application instances. Each poll costs
+ * O(new changes), not O(rows).
+ *
+ * Change IDs are allocated at INSERT but become visible at COMMIT, so a lower ID can appear after a
+ * higher one. The cursor therefore only moves past a missing ID once it shows up, or once it has
+ * been missing for longer than the gap timeout (a rolled-back transaction leaves a permanent hole).
+ * Entries above a hole are re-read until then; a row already published at the same or a newer
+ * version is not published again.
+ *
+ * It polls for the life of the process: DBManager keeps its in-memory indexes current from these
+ * events, so there is always a subscriber. The first poll starts from the end of the log.
+ */
+public class AppointmentChangePoller {
+
+    private static final Log LOG = Log.get("changes");
+
+    /** Where changes are read from. */
+    public interface Source {
+        /** The newest change ID (the cursor to start from when polling (re)starts). */
+        long latestChangeId() throws SQLException;
+
+        /** Changes with an ID above the cursor, lowest first, at most limit of them. */
+        List<AppointmentChange> fetchSince(long cursor, int limit) throws SQLException;
+    }
+
+    private static final int BATCH_LIMIT = 500;
+    private static final int MAX_TRACKED_ROWS = 10000;
+
+    private final Source source;
+    private final AppointmentEventBus bus;
+    private final long intervalMs;
+    private final long gapTimeoutNanos;
+    private final Thread worker;
+
+    private long cursor = -1; // every change up to here has been published; -1: not started
+    private long gapId = -1;  // lowest missing change ID above the cursor, and since when it is missing
+    private long gapSinceNanos;
+
+    // appointment ID -> last version published, oldest first (bounded)
+    private final Map<Integer, Integer> published = new LinkedHashMap<Integer, Integer>(256, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+            return size() > MAX_TRACKED_ROWS;
+        }
+    };
+
+    public AppointmentChangePoller(Source source, AppointmentEventBus bus, long intervalMs, long gapTimeoutMs) {
+        this.source = source;
+        this.bus = bus;
+        this.intervalMs = intervalMs;
+        this.gapTimeoutNanos = gapTimeoutMs * 1_000_000L;
+        this.worker = new Thread(this::run, "appointment-change-poller");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                poll();
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("Error polling appointment changes: " + e.getMessage());
+            }
+        }
+    }
+
+    private void poll() throws SQLException {
+        if (cursor < 0) {
+            cursor = source.latestChangeId();
+            gapId = -1;
+            published.clear();
+            return;
+        }
+        List<AppointmentChange> changes;
+        long before;
+        do {
+            before = cursor;
+            changes = source.fetchSince(cursor, BATCH_LIMIT);
+            boolean contiguous = true;
+            for (AppointmentChange change : changes) {
+                if (change.getRow() != null) {
+                    publishIfNew(change.getRow());
+                }
+                if (contiguous && change.getChangeId() == cursor + 1) {
+                    cursor++;
+                } else if (contiguous) {
+                    contiguous = false;
+                    skipOrWaitForGap(cursor + 1);
+                }
+            }
+        } while (changes.size() == BATCH_LIMIT && cursor > before);
+    }
+
+    // The change after the cursor is missing: wait for it to commit, or give up on it after the timeout
+    private void skipOrWaitForGap(long missingId) {
+        long now = System.nanoTime();
+        if (gapId != missingId) {
+            gapId = missingId;
+            gapSinceNanos = now;
+        } else if (now - gapSinceNanos > gapTimeoutNanos) {
+            cursor = missingId; // rolled back: the next poll carries on after it
+            gapId = -1;
+        }
+    }
+
+    private void publishIfNew(Appointment row) {
+        Integer seen = published.get(row.getId());
+        if (seen == null || row.getVersion() > seen) {
+            published.remove(row.getId()); // re-insert so the map stays oldest-first
+            published.put(row.getId(), row.getVersion());
+            bus.publish(AppointmentEvent.fromRow(row));
+        }
+    }
+
+    /** Stops the poller thread. */
+    public void shutdown() {
+        worker.interrupt();
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * One appointment change published on the AppointmentEventBus: a new booking, or a status change.
+ *
+ * Events from this process carry the change as DBManager made it; events picked up by the
+ * AppointmentChangePoller (made by another instance) always carry a full row snapshot. The same
+ * change may arrive twice (locally and again from the poller), so subscribers should ignore an
+ * event whose version is not newer than what they already show.
+ */
+public class AppointmentEvent {
+
+    public enum Type { BOOKED, STATUS_CHANGED }
+
+    /** Version of a local change whose new version DBManager did not read back (batched updates). */
+    public static final int UNKNOWN_VERSION = -1;
+
+    private final Type type;
+    private final int appointmentId;
+    private final AppointmentStatus status;
+    private final int version;
+    private final Appointment appointment;
+    private final boolean remote;
+
+    private AppointmentEvent(Type type, int appointmentId, AppointmentStatus status, int version,
+                             Appointment appointment, boolean remote) {
+        this.type = type;
+        this.appointmentId = appointmentId;
+        this.status = status;
+        this.version = version;
+        this.appointment = appointment;
+        this.remote = remote;
+    }
+
+    public static AppointmentEvent booked(Appointment appointment) {
+        return new AppointmentEvent(Type.BOOKED, appointment.getId(), appointment.getStatus(),
+                                    appointment.getVersion(), appointment, false);
+    }
+
+    public static AppointmentEvent statusChanged(int appointmentId, AppointmentStatus status, int version) {
+        return new AppointmentEvent(Type.STATUS_CHANGED, appointmentId, status, version, null, false);
+    }
+
+    /** A change read back from the database; a version-0 booked row is a new booking. */
+    public static AppointmentEvent fromRow(Appointment row) {
+        Type type = row.getVersion() == 0 && row.getStatus() == AppointmentStatus.BOOKED ? Type.BOOKED : Type.STATUS_CHANGED;
+        return new AppointmentEvent(type, row.getId(), row.getStatus(), row.getVersion(), row, true);
+    }
+
+    public Type getType() { return type; }
+    public int getAppointmentId() { return appointmentId; }
+    public AppointmentStatus getStatus() { return status; }
+    /** The row version after the change, or UNKNOWN_VERSION. */
+    public int getVersion() { return version; }
+    /** The full row after the change; null for a local status change (only ID, status and version are known). */
+    public Appointment getAppointment() { return appointment; }
+    /** True if the change was picked up from the database rather than made by this process. */
+    public boolean isRemote() { return remote; }
+
+    @Override
+    public String toString() {
+        return type + " appointment " + appointmentId + " -> " + status.getLabel() + " (v" + version + (remote ? ", remote)" : ")");
+    }
+}
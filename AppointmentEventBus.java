@@ -0,0 +1,40 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for appointment changes. DBManager publishes after every committed
+ * booking and status change; open windows subscribe and apply the change to what they show instead
+ * of reloading.
+ *
+ * Listeners run synchronously on the publishing thread (usually an AsyncDB worker or the change
+ * poller), so Swing subscribers must hop to the EDT themselves. A failing listener is logged and
+ * does not affect the others or the publisher.
+ */
+public class AppointmentEventBus {
+
+    private static final Log LOG = Log.get("changes");
+
+    /** Handle returned by subscribe(); close() removes the listener. */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // DSA: copy-on-write list: publishing (frequent) iterates without locking, subscribing (rare) copies
+    private final CopyOnWriteArrayList<Consumer<AppointmentEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    public Subscription subscribe(Consumer<AppointmentEvent> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public void publish(AppointmentEvent event) {
+        for (Consumer<AppointmentEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                LOG.error("Appointment event listener failed on " + event + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of an appointment, with the single-byte code kept in Appointment
+ * and the lowercase value stored in appointments.status.
+ *
+ * Legal transitions:  booked -> in progress -> completed
+ *                     booked -> completed
+ *                     booked -> cancelled
+ * completed and cancelled are final.
+ */
+public enum AppointmentStatus {
+    BOOKED((byte) 0, "booked", "Booked"),
+    IN_PROGRESS((byte) 1, "in progress", "In Progress"),
+    COMPLETED((byte) 2, "completed", "Completed"),
+    CANCELLED((byte) 3, "cancelled", "Cancelled");
+
+    private static final AppointmentStatus[] BY_CODE = values();
+
+    static {
+        BOOKED.next = EnumSet.of(IN_PROGRESS, COMPLETED, CANCELLED);
+        IN_PROGRESS.next = EnumSet.of(COMPLETED);
+        COMPLETED.next = EnumSet.noneOf(AppointmentStatus.class);
+        CANCELLED.next = EnumSet.noneOf(AppointmentStatus.class);
+    }
+
+    private final byte code;
+    private final String dbValue;
+    private final String label;
+    private Set<AppointmentStatus> next;
+
+    AppointmentStatus(byte code, String dbValue, String label) {
+        this.code = code;
+        this.dbValue = dbValue;
+        this.label = label;
+    }
+
+    public byte getCode() { return code; }
+    /** The value stored in appointments.status. */
+    public String getDbValue() { return dbValue; }
+    /** The value shown in the UI. */
+    public String getLabel() { return label; }
+
+    public boolean isFinal() {
+        return next.isEmpty();
+    }
+
+    public boolean canTransitionTo(AppointmentStatus target) {
+        return next.contains(target);
+    }
+
+    /** All statuses from which the given target status may be reached. */
+    public static Set<AppointmentStatus> predecessorsOf(AppointmentStatus target) {
+        Set<AppointmentStatus> result = EnumSet.noneOf(AppointmentStatus.class);
+        for (AppointmentStatus s : BY_CODE) {
+            if (s.canTransitionTo(target)) {
+                result.add(s);
+            }
+        }
+        return result;
+    }
+
+    public static AppointmentStatus fromCode(byte code) {
+        return BY_CODE[code];
+    }
+
+    /**
+     * Parses a status column value. Matching is case-insensitive, since older rows
+     * were written as e.g. "Completed".
+     * @throws IllegalArgumentException for an unknown value.
+     */
+    public static AppointmentStatus fromDbValue(String value) {
+        if (value != null) {
+            // Fast path: exact match on the canonical lowercase values
+            for (AppointmentStatus s : BY_CODE) {
+                if (s.dbValue.equals(value)) {
+                    return s;
+                }
+            }
+            String trimmed = value.trim();
+            for (AppointmentStatus s : BY_CODE) {
+                if (s.dbValue.equalsIgnoreCase(trimmed)) {
+                    return s;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown appointment status: '" + value + "'");
+    }
+}
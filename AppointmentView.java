@@ -0,0 +1,25 @@
+// AppointmentView.java
+/**
+ * Read-only projection of an appointment joined with its doctor's name and specialization,
+ * so list screens can render a row without a separate doctor lookup.
+ */
+public class AppointmentView extends Appointment {
+    private final String doctorName;
+    private final String doctorSpecialization;
+
+    public AppointmentView(int id, int patientId, int doctorId, long startMinute, AppointmentStatus status,
+                           int version, String doctorName, String doctorSpecialization) {
+        super(id, patientId, doctorId, startMinute, status, version);
+        this.doctorName = doctorName;
+        this.doctorSpecialization = doctorSpecialization;
+    }
+
+    /** The doctor's name, or null if the doctor row no longer exists. */
+    public String getDoctorName() { return doctorName; }
+    public String getDoctorSpecialization() { return doctorSpecialization; }
+
+    @Override
+    public String toString() {
+        return super.toString() + ", Doctor: " + doctorName + " (" + doctorSpecialization + ")";
+    }
+}
@@ -0,0 +1,172 @@
+import javax.swing.SwingUtilities;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over DBManager so the Swing frames never block the Event Dispatch Thread.
+ *
+ * Every call runs on a dedicated executor (one virtual thread per task on JDK 21+, a small
+ * daemon thread pool otherwise) and returns a CompletableFuture. Frames use a TaskGroup to
+ * get the result back on the EDT and to drop pending callbacks when the window is disposed.
+ */
+public final class AsyncDB {
+
+    private static final int PLATFORM_THREADS = Integer.getInteger("db.async.threads", 8);
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /** Runs callbacks on the Swing Event Dispatch Thread. */
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    private AsyncDB() {
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // JDK 21+: looked up reflectively so the code still compiles and runs on JDK 17
+            Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreads.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(PLATFORM_THREADS, r -> {
+                Thread t = new Thread(r, "db-async-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** Runs any DBManager call off the EDT. */
+    public static <T> CompletableFuture<T> supply(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, EXECUTOR);
+    }
+
+    // ----------------------------------------------------------------------
+    // Async versions of the DBManager calls used by the frames
+    // ----------------------------------------------------------------------
+    public static CompletableFuture<List<Doctor>> getAllDoctorsSorted() {
+        return supply(DBManager::getAllDoctorsSorted);
+    }
+
+    public static CompletableFuture<List<AvailabilitySearch.Slot>> findAvailableSlots(String specialization, LocalDate from,
+                                                                                      LocalDate to, int slotMinutes, int limit) {
+        return supply(() -> DBManager.findAvailableSlots(specialization, from, to, slotMinutes, limit));
+    }
+
+    // Principal-checked: scoped to the logged-in user (see DBManager)
+    public static CompletableFuture<List<AppointmentView>> getPatientAppointmentsWithDoctors(AuthResult user) {
+        return supply(() -> DBManager.getPatientAppointmentsWithDoctors(user));
+    }
+
+    public static CompletableFuture<List<Appointment>> getDoctorsTodayAppointments(AuthResult user) {
+        return supply(() -> DBManager.getDoctorsTodayAppointments(user));
+    }
+
+    public static CompletableFuture<DoctorDaySummary> getDoctorDaySummary(AuthResult user) {
+        return supply(() -> DBManager.getDoctorDaySummary(user));
+    }
+
+    public static CompletableFuture<BatchResult<Boolean>> updateStatuses(AuthResult user, Map<Integer, AppointmentStatus> updates,
+                                                                          boolean allOrNothing) {
+        return supply(() -> DBManager.updateStatuses(user, updates, allOrNothing));
+    }
+
+    public static CompletableFuture<StatusUpdateResult> updateStatus(AuthResult user, Appointment seen, AppointmentStatus newStatus) {
+        return supply(() -> DBManager.updateStatus(user, seen, newStatus));
+    }
+
+    public static CompletableFuture<Boolean> cancelAppointment(AuthResult user, int appointmentId) {
+        return supply(() -> DBManager.cancelAppointment(user, appointmentId));
+    }
+
+    public static CompletableFuture<BatchResult<BookingResult>> bookSeries(AuthResult user, int doctorId, LocalDateTime first,
+                                                                            RecurrenceRule rule, boolean allOrNothing) {
+        return supply(() -> DBManager.bookSeries(user, doctorId, first, rule, allOrNothing));
+    }
+
+    public static CompletableFuture<Integer> joinWaitlist(AuthResult user, int doctorId, LocalDate earliest, LocalDate latest) {
+        return supply(() -> DBManager.joinWaitlist(user, doctorId, earliest, latest));
+    }
+
+    public static CompletableFuture<BookingResult> tryBookAppointment(AuthResult user, int doctorId, LocalDateTime dateTime) {
+        return supply(() -> DBManager.tryBookAppointment(user, doctorId, dateTime));
+    }
+
+    // ----------------------------------------------------------------------
+    // Per-window task tracking
+    // ----------------------------------------------------------------------
+
+    /**
+     * The pending async calls of one window. Results are delivered on the EDT; after cancelAll()
+     * (call it from dispose()) no further callbacks run, so a closed window is never updated.
+     */
+    public static final class TaskGroup {
+        private final List<CompletableFuture<?>> pending = new CopyOnWriteArrayList<>();
+        private volatile boolean cancelled;
+
+        /**
+         * Delivers the future's result (or failure) to the callbacks on the EDT,
+         * unless the group has been cancelled by then.
+         */
+        public <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+            if (cancelled) {
+                future.cancel(true);
+                return;
+            }
+            pending.add(future);
+            future.whenCompleteAsync((result, error) -> {
+                pending.remove(future);
+                if (cancelled || future.isCancelled()) {
+                    return;
+                }
+                if (error != null) {
+                    onError.accept(error.getCause() != null ? error.getCause() : error);
+                } else {
+                    onSuccess.accept(result);
+                }
+            }, EDT);
+        }
+
+        /**
+         * onEdt for a principal-checked call. A refused call looks like an empty result, so if the user's
+         * session has ended by the time the result arrives, neither callback runs and the user is sent
+         * back to the login screen (LoginFrame.sessionExpired()).
+         */
+        public <T> void onEdt(AuthResult user, CompletableFuture<T> future, Consumer<T> onSuccess,
+                              Consumer<Throwable> onError) {
+            onEdt(future, result -> {
+                if (AuthService.verify(user) == null) {
+                    LoginFrame.sessionExpired();
+                } else {
+                    onSuccess.accept(result);
+                }
+            }, error -> {
+                if (AuthService.verify(user) == null) {
+                    LoginFrame.sessionExpired();
+                } else {
+                    onError.accept(error);
+                }
+            });
+        }
+
+        /** Cancels every pending call; their callbacks will not run. */
+        public void cancelAll() {
+            cancelled = true;
+            for (CompletableFuture<?> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * The authenticated user returned by AuthService.login(): user ID, role, and the session token the
+ * rest of the application presents to DBManager's principal-checked calls. Immutable; valid until
+ * the session expires or AuthService.logout() is called. Every use renews the session, so the
+ * current expiry is the stored session's (AuthService.verify()), not this copy's.
+ */
+public final class AuthResult {
+
+    /** Users.user_type. */
+    public enum Role {
+        DOCTOR("doctor"),
+        PATIENT("patient");
+
+        private final String dbValue;
+
+        Role(String dbValue) {
+            this.dbValue = dbValue;
+        }
+
+        /** The value stored in Users.user_type. */
+        public String getDbValue() { return dbValue; }
+
+        /**
+         * Parses a user_type column value (case-insensitive).
+         * @throws IllegalArgumentException for an unknown value.
+         */
+        public static Role fromDbValue(String value) {
+            if (value != null) {
+                String trimmed = value.trim();
+                for (Role role : values()) {
+                    if (role.dbValue.equalsIgnoreCase(trimmed)) {
+                        return role;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Unknown user type: '" + value + "'");
+        }
+    }
+
+    private final int userId;
+    private final Role role;
+    private final String token;
+    private final long issuedAtMillis;
+    private final long expiresAtMillis;
+
+    AuthResult(int userId, Role role, String token, long issuedAtMillis, long expiresAtMillis) {
+        this.userId = userId;
+        this.role = role;
+        this.token = token;
+        this.issuedAtMillis = issuedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public int getUserId() { return userId; }
+    public Role getRole() { return role; }
+    public String getToken() { return token; }
+    public long getIssuedAtMillis() { return issuedAtMillis; }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+
+    public boolean isDoctor() { return role == Role.DOCTOR; }
+    public boolean isPatient() { return role == Role.PATIENT; }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    // The same session with a new expiry (SessionStore renewal)
+    AuthResult withExpiry(long newExpiresAtMillis) {
+        return new AuthResult(userId, role, token, issuedAtMillis, newExpiresAtMillis);
+    }
+
+    @Override
+    public String toString() {
+        return role.getDbValue() + " " + userId; // never the token
+    }
+}
@@ -2,92 +2,178 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.SQLTimeoutException;
-// import DBManager; // Assuming DBManager is imported or in the same package
 
+/**
+ * Login and sessions.
+ *
+ * The password is checked in Java against a salted PBKDF2 hash (PasswordHasher), after reading the
+ * user's row by username only. Legacy plaintext passwords still work and are upgraded to a hash on
+ * the next successful login. A successful login opens a short-lived in-memory session whose token
+ * later calls can present instead of the password. Repeated failures for a username are throttled
+ * (LoginRateLimiter) before any query or hashing is done.
+ */
 public class AuthService {
 
+    private static final Log LOG = Log.get("auth");
+
+    // --- Settings (override with -Dauth.*) ---
+    private static final int HASH_ITERATIONS = Integer.getInteger("auth.hash.iterations", PasswordHasher.DEFAULT_ITERATIONS);
+    private static final long SESSION_TTL_MS = Long.getLong("auth.sessionTtlMs", 30 * 60 * 1000L); // idle time; each use renews
+    private static final int MAX_FAILED_LOGINS = Integer.getInteger("auth.maxFailedLogins", 5);
+    private static final long LOCKOUT_MS = Long.getLong("auth.lockoutMs", 15 * 60 * 1000L);
+
+    private static final PasswordHasher HASHER = new PasswordHasher(HASH_ITERATIONS);
+    private static final SessionStore SESSIONS = new SessionStore(SESSION_TTL_MS);
+    private static final LoginRateLimiter RATE_LIMITER = new LoginRateLimiter(MAX_FAILED_LOGINS, LOCKOUT_MS);
+
+    // Verified against when the username does not exist, so an unknown user costs as much as a wrong password
+    private static final String DUMMY_HASH = HASHER.hash("not-a-password".toCharArray());
+
     /**
-     * Authenticates the user and returns the user's ID and Type as a concatenated string.
+     * Authenticates the user.
      * @param username The string username (e.g., "john_doe").
      * @param password The user's password.
-     * @return A string in the format "userId|userType" (e.g., "101|patient") on success, or null on failure.
+     * @return The logged-in user (ID, role, session token), or null on failure.
      */
-    public static String authenticateUser(String username, String password) {
-        String authResult = null; // Will store "ID|TYPE" or be null
-        long startTime = System.currentTimeMillis();
+    public static AuthResult authenticateUser(String username, String password) {
+        return login(username, password.toCharArray());
+    }
 
-        System.out.println("\n--- AUTH SERVICE START ---");
-        System.out.println("Attempting to authenticate user: " + username);
+    /**
+     * Checks the credentials and opens a session.
+     * @param password Wiped before this method returns.
+     * @return The new session, or null if the credentials are wrong, the username is locked out,
+     *         or the database could not be reached.
+     */
+    public static AuthResult login(String username, char[] password) {
+        long start = System.nanoTime();
+        try {
+            long lockedMs = RATE_LIMITER.lockoutRemainingMillis(username);
+            if (lockedMs > 0) {
+                LOG.info(() -> "'" + username + "' locked out for another " + (lockedMs / 1000) + " s.");
+                return null;
+            }
 
-        // --- SQL Query: CRITICAL CHANGE - Select both user_id and user_type ---
-        // NOTE: Replace 'username_col' with your actual username column name (e.g., 'email', 'login_name').
-        String sql = "SELECT user_id, user_type FROM Users WHERE username = ? AND password = ?";
+            Credentials user = loadCredentials(username);
+            boolean valid = HASHER.verify(password, user != null ? user.password : DUMMY_HASH) && user != null;
+            if (!valid) {
+                RATE_LIMITER.onFailure(username);
+                LOG.info(() -> "Invalid credentials for '" + username + "'.");
+                return null;
+            }
+            RATE_LIMITER.onSuccess(username);
 
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
+            if (HASHER.needsRehash(user.password)) {
+                upgradeHash(user, password);
+            }
+            AuthResult session = SESSIONS.create(user.userId, user.role);
+            LOG.debug(() -> "'" + username + "' logged in as " + session + ".");
+            return session;
 
-        try {
-            // Check 1: Connection Attempt
-            System.out.println("1. Attempting to get database connection...");
-            
-            // NOTE: You must uncomment this line and ensure DBManager exists/works
-             conn = DBManager.getConnection(); 
-            
-            System.out.println("2. Connection established successfully.");
-            
-            // Check 2: PreparedStatement Execution
-            pstmt = conn.prepareStatement(sql);
-            
-            // Use setString for the string-based username
-            pstmt.setString(1, username); 
-            
-            // Use setString for the password
-            pstmt.setString(2, password);
-            
-            System.out.println("3. Executing query: " + sql);
-            
-            // Check 3: ResultSet Retrieval
-            rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                int userId = rs.getInt("user_id"); // Get the integer ID
-                String userType = rs.getString("user_type"); // Get the string Type
-                
-                // CRITICAL FIX: Concatenate and store the ID and Type
-                authResult = userId + "|" + userType; 
-                
-                System.out.println("SUCCESS: User '" + username + "' logged in. Result: " + authResult);
-            } else {
-                System.out.println("FAILURE: Credentials mismatch in database.");
+        } catch (SQLException e) {
+            LOG.error("Database error during login: " + e.getMessage());
+            return null;
+        } finally {
+            PasswordHasher.wipe(password);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(String.format("Login took %.1f ms", (System.nanoTime() - start) / 1e6));
             }
-            
-        } catch (SQLTimeoutException e) {
-            System.err.println("CRITICAL ERROR: Database connection timed out. Check if MySQL server is running and accessible.");
-            e.printStackTrace();
+        }
+    }
+
+    /** The live session for the token, or null if it is unknown or has expired. */
+    public static AuthResult getSession(String token) {
+        return SESSIONS.validate(token);
+    }
+
+    /**
+     * The stored session behind the user's token, or null if it has expired, was logged out, or is not
+     * this user's: an AuthResult built around someone else's token does not match the stored one.
+     * Callers should act on the returned session, not on the object they were given.
+     */
+    public static AuthResult verify(AuthResult user) {
+        if (user == null) {
+            return null;
+        }
+        AuthResult session = SESSIONS.validate(user.getToken());
+        if (session == null || session.getUserId() != user.getUserId() || session.getRole() != user.getRole()) {
+            return null;
+        }
+        return session;
+    }
+
+    public static void logout(String token) {
+        SESSIONS.invalidate(token);
+    }
+
+    /** How long the username is still locked out after repeated failures, in ms (0 if not). */
+    public static long getLockoutRemainingMillis(String username) {
+        return RATE_LIMITER.lockoutRemainingMillis(username);
+    }
+
+    /**
+     * Sets a new password (stored hashed).
+     * @param newPassword Wiped before this method returns.
+     * @return true if the user exists and was updated.
+     */
+    public static boolean changePassword(int userId, char[] newPassword) {
+        String sql = "UPDATE Users SET password = ? WHERE user_id = ?";
+        try (Connection conn = DBManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, HASHER.hash(newPassword));
+            pstmt.setInt(2, userId);
+            return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("CRITICAL ERROR: SQL Exception occurred.");
-            e.printStackTrace();
-        } catch (Exception e) {
-            // This catch is necessary if DBManager.getConnection() or similar throws a generic Exception
-            System.err.println("CRITICAL ERROR: Unexpected error during authentication.");
-            e.printStackTrace();
+            LOG.error("Error changing password for user " + userId + ": " + e.getMessage());
+            return false;
         } finally {
-            // Close resources reliably
-            try {
-                if (rs != null) rs.close();
-                if (pstmt != null) pstmt.close();
-                if (conn != null) conn.close();
-                System.out.println("4. Database resources closed.");
-            } catch (SQLException e) {
-                System.err.println("Error closing resources: " + e.getMessage());
+            PasswordHasher.wipe(newPassword);
+        }
+    }
+
+    private static Credentials loadCredentials(String username) throws SQLException {
+        String sql = "SELECT user_id, user_type, password FROM Users WHERE username = ?";
+        try (Connection conn = DBManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                String userType = rs.getString("user_type");
+                try {
+                    return new Credentials(rs.getInt("user_id"), AuthResult.Role.fromDbValue(userType), rs.getString("password"));
+                } catch (IllegalArgumentException e) {
+                    LOG.error("'" + username + "' has unknown user type '" + userType + "'.");
+                    return null;
+                }
             }
         }
-        
-        long endTime = System.currentTimeMillis();
-        System.out.printf("--- AUTH SERVICE END (Time taken: %.3f seconds) ---\n", (endTime - startTime) / 1000.0);
-        
-        return authResult; // Returns "ID|TYPE" or null
     }
-}
\ No newline at end of file
+
+    // Replaces a plaintext or weaker hash; only if nobody changed the password meanwhile. Failure is not fatal.
+    private static void upgradeHash(Credentials user, char[] password) {
+        String sql = "UPDATE Users SET password = ? WHERE user_id = ? AND password = ?";
+        try (Connection conn = DBManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, HASHER.hash(password));
+            pstmt.setInt(2, user.userId);
+            pstmt.setString(3, user.password);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            LOG.error("Could not upgrade password hash for user " + user.userId + ": " + e.getMessage());
+        }
+    }
+
+    private static final class Credentials {
+        final int userId;
+        final AuthResult.Role role;
+        final String password; // hash, or legacy plaintext
+
+        Credentials(int userId, AuthResult.Role role, String password) {
+            this.userId = userId;
+            this.role = role;
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Precomputed availability per doctor and day, derived from each doctor's DoctorSchedule.
+ *
+ * A day is the template's slot list plus a BitSet of which slots are still free. Days are loaded
+ * for a date window with one query over the active appointments of many doctors, and from then on
+ * kept current by onBooked()/onReleased() (called by DBManager after every booking, cancellation
+ * and completion), so availability reads never query the appointments table.
+ *
+ * Also serves BookingEngine its slot rules, so bookings and availability agree on slot boundaries.
+ */
+public class AvailabilityCalendar implements BookingEngine.SlotRules {
+
+    /** Returns the template for a doctor (the clinic default if the doctor has none). */
+    @FunctionalInterface
+    public interface ScheduleSource {
+        DoctorSchedule scheduleFor(int doctorId);
+    }
+
+    /** Loads the active (booked / in progress) appointments of the given doctors between two dates. */
+    @FunctionalInterface
+    public interface BookingLoader {
+        List<Appointment> loadActive(Collection<Integer> doctorIds, LocalDate from, LocalDate to) throws SQLException;
+    }
+
+    private final ScheduleSource schedules;
+    private final BookingLoader loader;
+    private final int defaultSlotMinutes;
+
+    private final ConcurrentHashMap<Integer, DoctorDays> doctors = new ConcurrentHashMap<>();
+    // appointment ID -> doctor, so onReleased(id) can find the day
+    private final ConcurrentHashMap<Integer, Integer> appointmentDoctors = new ConcurrentHashMap<>();
+
+    // Changes that arrive while a load query is running are replayed onto the days it installs
+    private final AtomicInteger loadsInFlight = new AtomicInteger();
+    private final Map<Integer, Appointment> pendingBooked = new ConcurrentHashMap<>();
+    private final Set<Integer> pendingReleased = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param defaultSlotMinutes How long an appointment blocks the doctor when it starts outside the template.
+     */
+    public AvailabilityCalendar(ScheduleSource schedules, BookingLoader loader, int defaultSlotMinutes) {
+        this.schedules = schedules;
+        this.loader = loader;
+        this.defaultSlotMinutes = defaultSlotMinutes;
+    }
+
+    // ----------------------------------------------------------------------
+    // BookingEngine.SlotRules
+    // ----------------------------------------------------------------------
+
+    @Override
+    public int bookableLength(int doctorId, LocalDate date, int startMinute) {
+        return schedules.scheduleFor(doctorId).bookableLength(date, startMinute);
+    }
+
+    @Override
+    public int occupiedLength(int doctorId, LocalDate date, int startMinute) {
+        int length = schedules.scheduleFor(doctorId).slotMinutesAt(date, startMinute);
+        return length > 0 ? length : defaultSlotMinutes;
+    }
+
+    // ----------------------------------------------------------------------
+    // Loading
+    // ----------------------------------------------------------------------
+
+    /**
+     * Makes sure the days [from, to] (past days excluded) are loaded for all the given doctors,
+     * with one appointments query per distinct missing range (normally one in total).
+     */
+    public void ensureLoaded(Collection<Integer> doctorIds, LocalDate from, LocalDate to) throws SQLException {
+        long today = LocalDate.now().toEpochDay();
+        long first = Math.max(from.toEpochDay(), today);
+        long last = to.toEpochDay();
+        if (first > last) {
+            return;
+        }
+
+        // Group the doctors by the span of days they are missing, so each group is one query
+        Map<List<Long>, List<Integer>> missing = new HashMap<>();
+        for (int doctorId : doctorIds) {
+            DoctorDays days = doctors.computeIfAbsent(doctorId, id -> new DoctorDays());
+            synchronized (days) {
+                if (!days.days.isEmpty() && days.days.firstKey() < today) {
+                    // Past days are never offered again
+                    days.days.headMap(today).clear();
+                    days.appointmentDays.values().removeIf(d -> d < today);
+                }
+                long start = first;
+                while (start <= last && days.days.containsKey(start)) {
+                    start++;
+                }
+                long end = last;
+                while (end >= start && days.days.containsKey(end)) {
+                    end--;
+                }
+                if (start <= end) {
+                    missing.computeIfAbsent(Arrays.asList(start, end), span -> new ArrayList<>()).add(doctorId);
+                }
+            }
+        }
+
+        for (Map.Entry<List<Long>, List<Integer>> group : missing.entrySet()) {
+            load(group.getValue(), group.getKey().get(0), group.getKey().get(1));
+        }
+    }
+
+    private void load(List<Integer> doctorIds, long firstDay, long lastDay) throws SQLException {
+        loadsInFlight.incrementAndGet();
+        try {
+            List<Appointment> active = loader.loadActive(doctorIds, LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay));
+            Map<Integer, List<Appointment>> byDoctor = new HashMap<>();
+            for (Appointment app : active) {
+                byDoctor.computeIfAbsent(app.getDoctorId(), id -> new ArrayList<>()).add(app);
+            }
+
+            for (int doctorId : doctorIds) {
+                DoctorSchedule schedule = schedules.scheduleFor(doctorId);
+                DoctorDays days = doctors.computeIfAbsent(doctorId, id -> new DoctorDays());
+                synchronized (days) {
+                    for (long d = firstDay; d <= lastDay; d++) {
+                        // A day installed by a concurrent load is already being kept current: leave it alone
+                        if (!days.days.containsKey(d)) {
+                            LocalDate date = LocalDate.ofEpochDay(d);
+                            days.days.put(d, new Day(schedule.slotStartsOn(date), schedule, date));
+                        }
+                    }
+                    for (Appointment app : byDoctor.getOrDefault(doctorId, Collections.emptyList())) {
+                        book(days, app);
+                    }
+                    for (Appointment app : pendingBooked.values()) {
+                        if (app.getDoctorId() == doctorId) {
+                            book(days, app);
+                        }
+                    }
+                    for (int appointmentId : pendingReleased) {
+                        release(days, appointmentId);
+                    }
+                }
+            }
+        } finally {
+            if (loadsInFlight.decrementAndGet() == 0) {
+                pendingBooked.clear();
+                pendingReleased.clear();
+            }
+        }
+    }
+
+    /** Drops everything; days are reloaded on next use (e.g. after schedule templates changed). */
+    public void invalidateAll() {
+        doctors.clear();
+        appointmentDoctors.clear();
+    }
+
+    public void invalidate(int doctorId) {
+        doctors.remove(doctorId);
+    }
+
+    // ----------------------------------------------------------------------
+    // Incremental updates
+    // ----------------------------------------------------------------------
+
+    /** A new active appointment: its slot(s) stop being free. */
+    public void onBooked(Appointment app) {
+        if (loadsInFlight.get() > 0) {
+            pendingBooked.put(app.getId(), app);
+        }
+        DoctorDays days = doctors.get(app.getDoctorId());
+        if (days != null) {
+            synchronized (days) {
+                book(days, app);
+            }
+        }
+    }
+
+    /** An appointment was cancelled or completed: its slot(s) are free again unless another booking overlaps. */
+    public void onReleased(int appointmentId) {
+        if (loadsInFlight.get() > 0) {
+            pendingBooked.remove(appointmentId);
+            pendingReleased.add(appointmentId);
+        }
+        Integer doctorId = appointmentDoctors.remove(appointmentId);
+        DoctorDays days = doctorId != null ? doctors.get(doctorId) : null;
+        if (days != null) {
+            synchronized (days) {
+                release(days, appointmentId);
+            }
+        }
+    }
+
+    // Caller holds the DoctorDays lock
+    private void book(DoctorDays days, Appointment app) {
+        if (!app.isScheduled()) {
+            return;
+        }
+        LocalDate date = app.getDate();
+        Day day = days.days.get(date.toEpochDay());
+        if (day == null) {
+            return; // outside the loaded window
+        }
+        int start = app.getMinuteOfDay();
+        day.add(app.getId(), start, start + occupiedLength(app.getDoctorId(), date, start));
+        days.appointmentDays.put(app.getId(), date.toEpochDay());
+        appointmentDoctors.put(app.getId(), app.getDoctorId());
+    }
+
+    // Caller holds the DoctorDays lock
+    private void release(DoctorDays days, int appointmentId) {
+        Long epochDay = days.appointmentDays.remove(appointmentId);
+        Day day = epochDay != null ? days.days.get(epochDay) : null;
+        if (day != null) {
+            day.remove(appointmentId);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Reads (memory only; call ensureLoaded first)
+    // ----------------------------------------------------------------------
+
+    /**
+     * The start (epoch minute) of the doctor's first free stretch of at least minutes, made of back-to-back
+     * free template slots, starting at or after fromEpochMinute and no later than lastDay. -1 if none is loaded.
+     */
+    public long nextFreeStart(int doctorId, long fromEpochMinute, LocalDate lastDay, int minutes) {
+        DoctorDays days = doctors.get(doctorId);
+        if (days == null) {
+            return -1;
+        }
+        long day = Math.floorDiv(fromEpochMinute, 24 * 60);
+        int minute = Math.floorMod(fromEpochMinute, 24 * 60);
+        synchronized (days) {
+            for (Map.Entry<Long, Day> e : days.days.subMap(day, true, lastDay.toEpochDay(), true).entrySet()) {
+                Day d = e.getValue();
+                int slot = d.nextFree(e.getKey() == day ? d.firstSlotAtOrAfter(minute) : 0, minutes);
+                if (slot >= 0) {
+                    return e.getKey() * 24 * 60 + d.starts[slot];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Up to count free slots of that doctor and day nearest to the given minute, in time order. */
+    public List<LocalDateTime> nearestFree(int doctorId, LocalDate date, int minuteOfDay, int count) throws SQLException {
+        ensureLoaded(Collections.singletonList(doctorId), date, date);
+        List<Integer> free = new ArrayList<>();
+        DoctorDays days = doctors.get(doctorId);
+        if (days == null) {
+            return Collections.emptyList();
+        }
+        synchronized (days) {
+            Day day = days.days.get(date.toEpochDay());
+            if (day != null) {
+                for (int i = day.free.nextSetBit(0); i >= 0; i = day.free.nextSetBit(i + 1)) {
+                    free.add(day.starts[i]);
+                }
+            }
+        }
+        free.sort((a, b) -> Integer.compare(Math.abs(a - minuteOfDay), Math.abs(b - minuteOfDay)));
+        List<Integer> nearest = new ArrayList<>(free.subList(0, Math.min(count, free.size())));
+        Collections.sort(nearest);
+
+        List<LocalDateTime> result = new ArrayList<>(nearest.size());
+        for (int m : nearest) {
+            result.add(date.atTime(m / 60, m % 60));
+        }
+        return result;
+    }
+
+    // ----------------------------------------------------------------------
+    // Internal structures
+    // ----------------------------------------------------------------------
+
+    private static final class DoctorDays {
+        final TreeMap<Long, Day> days = new TreeMap<>();            // epoch day -> availability
+        final Map<Integer, Long> appointmentDays = new HashMap<>(); // appointment ID -> epoch day
+    }
+
+    /** One doctor-day: template slots [starts[i], ends[i]) and which of them are free. */
+    private static final class Day {
+        final int[] starts;
+        final int[] ends;
+        final BitSet free;
+        final Map<Integer, int[]> bookings = new HashMap<>(4); // appointment ID -> {start, end}
+
+        Day(int[] starts, DoctorSchedule schedule, LocalDate date) {
+            this.starts = starts;
+            this.ends = new int[starts.length];
+            for (int i = 0; i < starts.length; i++) {
+                ends[i] = starts[i] + schedule.slotMinutesAt(date, starts[i]);
+            }
+            this.free = new BitSet(starts.length);
+            free.set(0, starts.length);
+        }
+
+        void add(int appointmentId, int start, int end) {
+            bookings.put(appointmentId, new int[] {start, end});
+            for (int i = firstSlotEndingAfter(start); i < starts.length && starts[i] < end; i++) {
+                free.clear(i);
+            }
+        }
+
+        void remove(int appointmentId) {
+            int[] removed = bookings.remove(appointmentId);
+            if (removed == null) {
+                return;
+            }
+            for (int i = firstSlotEndingAfter(removed[0]); i < starts.length && starts[i] < removed[1]; i++) {
+                boolean stillBusy = false;
+                for (int[] b : bookings.values()) {
+                    if (b[0] < ends[i] && b[1] > starts[i]) {
+                        stillBusy = true;
+                        break;
+                    }
+                }
+                if (!stillBusy) {
+                    free.set(i);
+                }
+            }
+        }
+
+        // DSA: binary search over the sorted slot ends
+        int firstSlotEndingAfter(int minute) {
+            int pos = Arrays.binarySearch(ends, minute + 1);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+
+        int firstSlotAtOrAfter(int minute) {
+            int pos = Arrays.binarySearch(starts, minute);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+
+        /** First free slot at or after fromIndex that begins a run of back-to-back free slots covering minutes. */
+        int nextFree(int fromIndex, int minutes) {
+            for (int i = free.nextSetBit(fromIndex); i >= 0; i = free.nextSetBit(i + 1)) {
+                int j = i;
+                while (ends[j] - starts[i] < minutes
+                       && j + 1 < starts.length && free.get(j + 1) && starts[j + 1] == ends[j]) {
+                    j++;
+                }
+                if (ends[j] - starts[i] >= minutes) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
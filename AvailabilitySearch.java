@@ -0,0 +1,100 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * "Next N free slots" across a set of doctors over a date range.
+ *
+ * Every doctor's free slots come from the precomputed AvailabilityCalendar (template slots plus a
+ * free-slot BitSet per day), so the search runs entirely in memory. Each doctor is a cursor that
+ * yields its free stretches in time order, and a k-way merge over a PriorityQueue of cursors
+ * returns the earliest N overall without materializing the rest.
+ */
+public class AvailabilitySearch {
+
+    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final AvailabilityCalendar calendar;
+
+    public AvailabilitySearch(AvailabilityCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    /**
+     * The earliest free slots across the given doctors, in time order (ties in the doctors' list order).
+     * The doctors' days in [notBefore, to] must already be loaded (AvailabilityCalendar.ensureLoaded).
+     * @param slotMinutes Minimum free length; a slot may span several back-to-back template slots.
+     * @param notBefore Slots starting before this are skipped (typically "now").
+     */
+    public List<Slot> earliest(List<Doctor> doctors, LocalDate to, int slotMinutes, int limit, LocalDateTime notBefore) {
+        List<Slot> result = new ArrayList<>(limit);
+        long from = notBefore.toLocalDate().toEpochDay() * MINUTES_PER_DAY
+                    + notBefore.getHour() * 60 + notBefore.getMinute() + (notBefore.getSecond() > 0 ? 1 : 0);
+
+        // DSA: k-way merge - one cursor per doctor, heap ordered by the cursor's next free start
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, doctors.size()),
+            (a, b) -> a.start != b.start ? Long.compare(a.start, b.start) : Integer.compare(a.order, b.order));
+        for (int i = 0; i < doctors.size(); i++) {
+            Cursor cursor = new Cursor(doctors.get(i), i);
+            if (cursor.advance(from, to, slotMinutes)) {
+                heap.offer(cursor);
+            }
+        }
+
+        while (result.size() < limit && !heap.isEmpty()) {
+            Cursor cursor = heap.poll();
+            long day = Math.floorDiv(cursor.start, MINUTES_PER_DAY);
+            int minute = Math.floorMod(cursor.start, MINUTES_PER_DAY);
+            result.add(new Slot(cursor.doctor, LocalDate.ofEpochDay(day).atTime(minute / 60, minute % 60), slotMinutes));
+
+            if (cursor.advance(cursor.start + 1, to, slotMinutes)) {
+                heap.offer(cursor);
+            }
+        }
+        return result;
+    }
+
+    /** One doctor's position in the merge: the start (epoch minute) of its next free stretch. */
+    private final class Cursor {
+        final Doctor doctor;
+        final int order;
+        long start;
+
+        Cursor(Doctor doctor, int order) {
+            this.doctor = doctor;
+            this.order = order;
+        }
+
+        /** Moves to the first free stretch starting at or after fromMinute; false when the range is exhausted. */
+        boolean advance(long fromMinute, LocalDate to, int slotMinutes) {
+            start = calendar.nextFreeStart(doctor.getId(), fromMinute, to, slotMinutes);
+            return start >= 0;
+        }
+    }
+
+    /** A free slot of one doctor. */
+    public static final class Slot {
+        private final Doctor doctor;
+        private final LocalDateTime start;
+        private final int minutes;
+
+        public Slot(Doctor doctor, LocalDateTime start, int minutes) {
+            this.doctor = doctor;
+            this.start = start;
+            this.minutes = minutes;
+        }
+
+        public Doctor getDoctor() { return doctor; }
+        public LocalDateTime getStart() { return start; }
+        public int getMinutes() { return minutes; }
+
+        @Override
+        public String toString() { // for the slot picker
+            return start.format(SLOT_FORMAT) + " - " + doctor.getName();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * In-memory benchmark for AvailabilityCalendar + AvailabilitySearch (no database needed).
+ *
+ * Books roughly the given share of 30-minute template slots at random for D doctors over N days
+ * (starting tomorrow), then times separately
+ *   - building the calendar from those appointments (what one load query feeds it), and
+ *   - the interactive search (k-way merge for the first 10 free slots) against the built calendar.
+ * The budget for the picker is 5 ms at 200 doctors x 30 days.
+ *
+ * Usage: java AvailabilitySearchBenchmark [doctors] [days] [bookedPercent] [iterations]
+ */
+public class AvailabilitySearchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int doctorCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int bookedPercent = args.length > 2 ? Integer.parseInt(args[2]) : 80;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        int open = 9 * 60;
+        int close = 17 * 60;
+        int slot = 30;
+        LocalDate from = LocalDate.now().plusDays(1);
+        LocalDate to = from.plusDays(days - 1);
+        DoctorSchedule schedule = DoctorSchedule.everyDay(open, close, slot);
+
+        List<Doctor> doctors = new ArrayList<>(doctorCount);
+        List<Integer> doctorIds = new ArrayList<>(doctorCount);
+        for (int i = 1; i <= doctorCount; i++) {
+            doctors.add(new Doctor(i, "Doctor " + i, "Cardiology", ""));
+            doctorIds.add(i);
+        }
+
+        // The same appointment rows are returned by every load, as if just read from the database
+        Random random = new Random(42);
+        List<Appointment> booked = new ArrayList<>();
+        for (int d = 1; d <= doctorCount; d++) {
+            for (int day = 0; day < days; day++) {
+                for (int m = open; m + slot <= close; m += slot) {
+                    if (random.nextInt(100) < bookedPercent) {
+                        long start = Appointment.toEpochMinute(from.plusDays(day).atTime(m / 60, m % 60));
+                        booked.add(new Appointment(booked.size() + 1, 1, d, start, AppointmentStatus.BOOKED));
+                    }
+                }
+            }
+        }
+
+        long[] buildNanos = new long[iterations];
+        long[] searchNanos = new long[iterations];
+        List<AvailabilitySearch.Slot> slots = null;
+        for (int i = -20; i < iterations; i++) { // negative i: warm-up
+            long t0 = System.nanoTime();
+            AvailabilityCalendar calendar = new AvailabilityCalendar(id -> schedule, (ids, f, t) -> booked, slot);
+            calendar.ensureLoaded(doctorIds, from, to);
+            long t1 = System.nanoTime();
+            slots = new AvailabilitySearch(calendar).earliest(doctors, to, slot, 10, from.atStartOfDay());
+            long t2 = System.nanoTime();
+            if (i >= 0) {
+                buildNanos[i] = t1 - t0;
+                searchNanos[i] = t2 - t1;
+            }
+        }
+
+        System.out.printf("%d doctors x %d days, %d%% booked (%d appointments), %d iterations%n",
+                          doctorCount, days, bookedPercent, booked.size(), iterations);
+        report("calendar build", buildNanos);
+        report("search        ", searchNanos);
+        System.out.println("first slots: " + slots);
+    }
+
+    private static void report(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s  p50=%.3f ms  p90=%.3f ms  max=%.3f ms%n", label,
+                          sorted[sorted.length / 2] / 1e6,
+                          sorted[(int) (sorted.length * 0.9)] / 1e6,
+                          sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch call (bookAppointments, updateStatuses): one result per input item, in input
+ * order, and whether the batch was committed. In all-or-nothing mode a single failed item leaves
+ * committed false and nothing written; otherwise each item stands on its own.
+ */
+public class BatchResult<T> {
+    private final List<T> results;
+    private final boolean committed;
+    private final int succeeded;
+
+    public BatchResult(List<T> results, boolean committed, int succeeded) {
+        this.results = Collections.unmodifiableList(results);
+        this.committed = committed;
+        this.succeeded = succeeded;
+    }
+
+    /** Per-item results, in the same order as the input. */
+    public List<T> getResults() {
+        return results;
+    }
+
+    public T get(int index) {
+        return results.get(index);
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /** True if the successful items were written (always true in per-item mode unless the database failed). */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /** Number of items that were written. */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public boolean isAllSucceeded() {
+        return committed && succeeded == results.size();
+    }
+
+    @Override
+    public String toString() {
+        return succeeded + "/" + results.size() + " succeeded" + (committed ? "" : " (rolled back)");
+    }
+}
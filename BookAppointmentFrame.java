@@ -2,22 +2,43 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 public class BookAppointmentFrame extends JFrame implements ActionListener {
     
+    private final AuthResult user; // The logged-in patient
     private final int patientId;
-    private JComboBox<String> doctorComboBox;
+    private JComboBox<Doctor> doctorComboBox;
     private JTextField dateField;
     private JTextField timeField;
+    private JComboBox<String> repeatComboBox;
+    private JSpinner visitsSpinner;
+    private JCheckBox allOrNothingBox;
     private JButton bookButton;
+    private JButton suggestButton;
+    private JLabel loadingLabel;
 
-    public BookAppointmentFrame(int patientId) {
-        this.patientId = patientId;
+    // "Suggest Slots" searches this many days ahead and offers this many slots
+    private static final int SUGGEST_DAYS = 14;
+    private static final int SUGGEST_LIMIT = 10;
+
+    // Index 0 of the "Repeat" box books a single visit; the others map to these frequencies
+    private static final String[] REPEAT_OPTIONS = {"Does not repeat", "Weekly", "Every 2 weeks"};
+    private static final RecurrenceRule.Frequency[] REPEAT_FREQUENCIES = {null, RecurrenceRule.Frequency.WEEKLY,
+                                                                          RecurrenceRule.Frequency.BIWEEKLY};
+
+    // DB calls run off the EDT; cancelled when this window is disposed
+    private final AsyncDB.TaskGroup tasks = new AsyncDB.TaskGroup();
+
+    public BookAppointmentFrame(AuthResult user) {
+        this.user = user;
+        this.patientId = user.getUserId();
         setTitle("Book New Appointment - " + patientId);
-        setSize(450, 350);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setSize(450, 530);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout(10, 10));
         
@@ -46,14 +67,10 @@ private void setupForm() {
     gbc.gridx = 0; gbc.gridy = 0;
     formPanel.add(doctorLabel, gbc);
 
-    List<Doctor> doctors = DBManager.getAllDoctorsSorted();
-    String[] doctorNames = new String[doctors.size()];
-    for (int i = 0; i < doctors.size(); i++) {
-        Doctor d = doctors.get(i);
-        // Using the updated Doctor toString format: "Name (Specialization) - ID: 1"
-        doctorNames[i] = d.toString(); 
-    }
-    doctorComboBox = new JComboBox<>(doctorNames);
+    // Filled asynchronously from the doctor directory (already sorted by specialization/name).
+    // The combo box renders Doctor.toString(): "Name (Specialization) - ID: 1"
+    doctorComboBox = new JComboBox<>();
+    doctorComboBox.setEnabled(false);
     gbc.gridx = 1; gbc.gridy = 0;
     formPanel.add(doctorComboBox, gbc);
 
@@ -73,75 +90,274 @@ private void setupForm() {
     gbc.gridx = 1; gbc.gridy = 2;
     formPanel.add(timeField, gbc);
 
-    // 4. Book Button
+    // 4. Recurrence: repeat the visit weekly / every other week for N visits
+    JLabel repeatLabel = new JLabel("Repeat:");
+    gbc.gridx = 0; gbc.gridy = 3;
+    formPanel.add(repeatLabel, gbc);
+    JPanel repeatPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    repeatComboBox = new JComboBox<>(REPEAT_OPTIONS);
+    visitsSpinner = new JSpinner(new SpinnerNumberModel(4, 2, RecurrenceRule.MAX_OCCURRENCES, 1));
+    visitsSpinner.setEnabled(false);
+    repeatComboBox.addActionListener(ev -> {
+        boolean repeats = repeatComboBox.getSelectedIndex() > 0;
+        visitsSpinner.setEnabled(repeats);
+        allOrNothingBox.setEnabled(repeats);
+    });
+    repeatPanel.add(repeatComboBox);
+    repeatPanel.add(visitsSpinner);
+    repeatPanel.add(new JLabel("visits"));
+    gbc.gridx = 1; gbc.gridy = 3;
+    formPanel.add(repeatPanel, gbc);
+
+    allOrNothingBox = new JCheckBox("Only book if every date is free");
+    allOrNothingBox.setEnabled(false);
+    gbc.gridx = 1; gbc.gridy = 4;
+    formPanel.add(allOrNothingBox, gbc);
+
+    // 5. Free-slot picker: earliest open slots across doctors of the selected specialization
+    suggestButton = new JButton("Suggest Slots");
+    suggestButton.addActionListener(this);
+    suggestButton.setEnabled(false); // enabled once the doctor list has loaded
+    gbc.gridx = 0; gbc.gridy = 5; gbc.gridwidth = 2;
+    formPanel.add(suggestButton, gbc);
+
+    // 6. Book Button
     bookButton = new JButton("Confirm Booking");
     bookButton.setBackground(new Color(34, 139, 34));
     bookButton.setForeground(Color.WHITE);
     bookButton.setFont(new Font("Arial", Font.BOLD, 16));
     bookButton.addActionListener(this);
-    gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2;
-    gbc.insets = new Insets(30, 10, 10, 10);
+    bookButton.setEnabled(false); // enabled once the doctor list has loaded
+    gbc.gridy = 6;
+    gbc.insets = new Insets(20, 10, 10, 10);
     formPanel.add(bookButton, gbc);
 
+    // 7. Loading / progress indicator
+    loadingLabel = new JLabel("Loading doctors...", SwingConstants.CENTER);
+    loadingLabel.setFont(new Font("Arial", Font.ITALIC, 12));
+    gbc.gridy = 7;
+    gbc.insets = new Insets(0, 10, 0, 10);
+    formPanel.add(loadingLabel, gbc);
+
+    tasks.onEdt(AsyncDB.getAllDoctorsSorted(), this::showDoctors, error -> {
+        loadingLabel.setText("Could not load doctors: " + error.getMessage());
+        loadingLabel.setForeground(Color.RED);
+    });
+
     // FIX: This line MUST be here to add the panel to the JFrame
     add(formPanel, BorderLayout.CENTER);
 }
 
+    private void showDoctors(List<Doctor> doctors) {
+        for (Doctor d : doctors) {
+            doctorComboBox.addItem(d);
+        }
+        doctorComboBox.setEnabled(true);
+        bookButton.setEnabled(!doctors.isEmpty());
+        suggestButton.setEnabled(!doctors.isEmpty());
+        loadingLabel.setText(doctors.isEmpty() ? "No doctors available." : " ");
+    }
+
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
+    }
+
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (e.getSource() == bookButton) {
-            String selectedDoctorInfo = (String) doctorComboBox.getSelectedItem();
-            if (selectedDoctorInfo == null) {
+        if (e.getSource() == suggestButton) {
+            suggestSlots();
+        } else if (e.getSource() == bookButton) {
+            Doctor selectedDoctor = (Doctor) doctorComboBox.getSelectedItem();
+            if (selectedDoctor == null) {
                 JOptionPane.showMessageDialog(this, "Please select a doctor.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-
-            // --- CRITICAL FIX: Extract Doctor ID as INT ---
-            int doctorId;
-            try {
-                // Find "ID: " and extract the subsequent integer
-                String idString = selectedDoctorInfo.substring(
-                    selectedDoctorInfo.lastIndexOf("ID: ") + 4
-                );
-                doctorId = Integer.parseInt(idString.trim());
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Error parsing Doctor ID. Selection format is invalid.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            // --- END CRITICAL FIX ---
+            int doctorId = selectedDoctor.getId();
             
             String date = dateField.getText().trim();
             String time = timeField.getText().trim();
             String dateTimeString = date + " " + time;
             
+            LocalDateTime dateTime;
             try {
                 // Validation
-                LocalDateTime.parse(dateTimeString, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+                dateTime = LocalDateTime.parse(dateTimeString, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Invalid Date/Time format. Use YYYY-MM-DD and HH:MM.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            // Book the appointment (Pass doctorId as INT)
-            Appointment newApp = DBManager.bookNewAppointment(this.patientId, doctorId, dateTimeString);
+            RecurrenceRule.Frequency frequency = REPEAT_FREQUENCIES[repeatComboBox.getSelectedIndex()];
+            if (frequency != null) {
+                RecurrenceRule rule = RecurrenceRule.count(frequency, (Integer) visitsSpinner.getValue());
+                bookButton.setEnabled(false);
+                loadingLabel.setText("Booking " + rule.getCount() + " visits...");
+                tasks.onEdt(this.user, AsyncDB.bookSeries(this.user, doctorId, dateTime, rule, allOrNothingBox.isSelected()),
+                    result -> showSeriesResult(result, rule.expand(dateTime), selectedDoctor, time),
+                    error -> {
+                        bookButton.setEnabled(true);
+                        loadingLabel.setText(" ");
+                        JOptionPane.showMessageDialog(this, "Failed to book the series: " + error.getMessage(),
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
+                    });
+                return;
+            }
+
+            // Book the appointment off the EDT (Pass doctorId as INT)
+            bookButton.setEnabled(false);
+            loadingLabel.setText("Booking...");
+            tasks.onEdt(this.user, AsyncDB.tryBookAppointment(this.user, doctorId, dateTime),
+                result -> showBookingResult(result, selectedDoctor, date, time),
+                error -> showBookingResult(BookingResult.error(error.getMessage()), selectedDoctor, date, time));
+        }
+    }
+
+    private void showBookingResult(BookingResult result, Doctor selectedDoctor, String date, String time) {
+        bookButton.setEnabled(true);
+        loadingLabel.setText(" ");
+
+        if (result.getOutcome() == BookingResult.Outcome.CONFLICT) {
+            offerAlternatives(result, selectedDoctor, date);
+            return;
+        }
+        if (result.getOutcome() == BookingResult.Outcome.NOT_BOOKABLE) {
+            JOptionPane.showMessageDialog(this, result.getMessage() + "\nPlease choose another date or time.",
+                "Slot Unavailable", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        Appointment newApp = result.getAppointment();
+        if (newApp != null) {
+            String doctorName = selectedDoctor.getName();
+
+            // 1. Show Success Message
+            JOptionPane.showMessageDialog(this, 
+                "Appointment successfully booked!\n\nID: " + newApp.getId() + 
+                "\nDoctor: " + doctorName + 
+                "\nDate: " + date + "\nTime: " + time, 
+                "Booking Confirmed", JOptionPane.INFORMATION_MESSAGE);
+            
+            // 2. Close the current (booking) window
+            dispose(); 
             
-            if (newApp != null) {
-                Doctor bookedDoctor = DBManager.getDoctorById(doctorId);
-                String doctorName = (bookedDoctor != null) ? bookedDoctor.getName() : "Unknown Doctor";
-
-                // 1. Show Success Message
-                JOptionPane.showMessageDialog(this, 
-                    "Appointment successfully booked!\n\nID: " + newApp.getId() + 
-                    "\nDoctor: " + doctorName + 
-                    "\nDate: " + date + "\nTime: " + time, 
-                    "Booking Confirmed", JOptionPane.INFORMATION_MESSAGE);
-                
-                // 2. Close the current (booking) window
-                dispose(); 
-                
-            } else {
-                 JOptionPane.showMessageDialog(this, "Failed to book appointment. Check the console for database errors.", "Database Error", JOptionPane.ERROR_MESSAGE);
+        } else {
+             JOptionPane.showMessageDialog(this, "Failed to book appointment. Check the console for database errors.", "Database Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /** Summarises a booked series: how many visits were booked and which dates were not. */
+    private void showSeriesResult(BatchResult<BookingResult> result, List<LocalDateTime> starts,
+                                  Doctor selectedDoctor, String time) {
+        bookButton.setEnabled(true);
+        loadingLabel.setText(" ");
+
+        StringBuilder skipped = new StringBuilder();
+        for (int i = 0; i < result.size(); i++) {
+            if (!result.get(i).isBooked()) {
+                skipped.append("\n  ").append(starts.get(i).toLocalDate()).append(": ").append(result.get(i).getMessage());
             }
         }
+
+        if (result.getSucceeded() == 0) {
+            JOptionPane.showMessageDialog(this, "No visits were booked." + skipped,
+                "Series Not Booked", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        JOptionPane.showMessageDialog(this,
+            result.getSucceeded() + " of " + result.size() + " visits booked with " + selectedDoctor.getName() +
+            " at " + time + "." + (skipped.length() > 0 ? "\n\nNot booked:" + skipped : ""),
+            "Series Booked", JOptionPane.INFORMATION_MESSAGE);
+        if (result.isAllSucceeded()) {
+            dispose();
+        }
+    }
+
+    private void suggestSlots() {
+        Doctor selectedDoctor = (Doctor) doctorComboBox.getSelectedItem();
+        if (selectedDoctor == null) {
+            JOptionPane.showMessageDialog(this, "Please select a doctor.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String specialization = selectedDoctor.getSpecialization();
+        LocalDate today = LocalDate.now();
+
+        suggestButton.setEnabled(false);
+        loadingLabel.setText("Searching free " + specialization + " slots...");
+        tasks.onEdt(AsyncDB.findAvailableSlots(specialization, today, today.plusDays(SUGGEST_DAYS - 1),
+                                               DBManager.getBookingDurationMinutes(), SUGGEST_LIMIT),
+            slots -> showSuggestedSlots(slots, specialization),
+            error -> showSuggestedSlots(List.of(), specialization));
+    }
+
+    private void showWaitlistResult(int waitlistId) {
+        if (waitlistId > 0) {
+            JOptionPane.showMessageDialog(this, "You are on the waiting list (entry " + waitlistId + ").",
+                "Waiting List", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Could not join the waiting list. Check the console for database errors.",
+                "Database Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /** Lets the patient pick one of the found slots and copies it (doctor, date, time) into the form. */
+    private void showSuggestedSlots(List<AvailabilitySearch.Slot> slots, String specialization) {
+        suggestButton.setEnabled(true);
+        loadingLabel.setText(" ");
+        if (slots.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No free " + specialization + " slots in the next " + SUGGEST_DAYS + " days.",
+                "No Slots", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        AvailabilitySearch.Slot[] options = slots.toArray(new AvailabilitySearch.Slot[0]);
+        AvailabilitySearch.Slot choice = (AvailabilitySearch.Slot) JOptionPane.showInputDialog(this,
+            "Earliest free " + specialization + " slots:", "Suggest Slots",
+            JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+        if (choice != null) {
+            for (int i = 0; i < doctorComboBox.getItemCount(); i++) {
+                if (doctorComboBox.getItemAt(i).getId() == choice.getDoctor().getId()) {
+                    doctorComboBox.setSelectedIndex(i);
+                    break;
+                }
+            }
+            dateField.setText(choice.getStart().toLocalDate().toString());
+            timeField.setText(choice.getStart().format(DateTimeFormatter.ofPattern("HH:mm")));
+        }
+    }
+
+    /**
+     * The slot is taken: let the patient pick one of the nearby free slots, which is copied into
+     * the date/time fields so "Confirm Booking" books it.
+     */
+    private void offerAlternatives(BookingResult result, Doctor selectedDoctor, String date) {
+        List<LocalDateTime> alternatives = result.getAlternatives();
+        if (alternatives.isEmpty()) {
+            int join = JOptionPane.showConfirmDialog(this,
+                result.getMessage() + "\nNo other free slots that day.\n\n" +
+                "Join the waiting list? You will be booked automatically if a slot with " +
+                selectedDoctor.getName() + " on " + date + " is cancelled.",
+                "Slot Unavailable", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (join == JOptionPane.YES_OPTION) {
+                LocalDate day = LocalDate.parse(date);
+                tasks.onEdt(this.user, AsyncDB.joinWaitlist(this.user, selectedDoctor.getId(), day, day),
+                    this::showWaitlistResult, error -> showWaitlistResult(-1));
+            }
+            return;
+        }
+
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        String[] options = new String[alternatives.size()];
+        for (int i = 0; i < options.length; i++) {
+            options[i] = alternatives.get(i).format(format);
+        }
+        String choice = (String) JOptionPane.showInputDialog(this,
+            result.getMessage() + "\nAvailable nearby slots:", "Slot Unavailable",
+            JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+        if (choice != null) {
+            dateField.setText(choice.substring(0, 10));
+            timeField.setText(choice.substring(11));
+        }
     }
 }
\ No newline at end of file
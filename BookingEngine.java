@@ -0,0 +1,318 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory slot-conflict index used by DBManager.tryBookAppointment().
+ *
+ * For every (doctor, day) that has been asked about it keeps the booked intervals in a TreeMap
+ * keyed by start minute, so "does [start, start + duration) overlap anything?" is answered with
+ * one floorEntry/higherEntry lookup (O(log n)) instead of a query. A successful check immediately
+ * reserves the interval under the day's lock, so two concurrent bookings of the same slot in this
+ * process cannot both pass. Which starts are bookable, and for how long, comes from the doctor's
+ * schedule template (SlotRules). Bookings and cancellations made by other instances are applied
+ * with onBooked()/onCancelled(); the UNIQUE (doctor, date, time, active) constraint in the database
+ * remains the source of truth across processes.
+ */
+public class BookingEngine {
+
+    /**
+     * Loads the active (booked / in progress) appointments of one doctor on the given days:
+     * date -> (appointment ID -> start minute of day). Days without appointments may be absent.
+     */
+    @FunctionalInterface
+    public interface DayLoader {
+        Map<LocalDate, Map<Integer, Integer>> loadBookedStarts(int doctorId, Collection<LocalDate> dates) throws SQLException;
+    }
+
+    /** Slot boundaries from the doctor's schedule. */
+    public interface SlotRules {
+        /** Length of the template slot starting exactly at that minute, or 0 if nothing can be booked there. */
+        int bookableLength(int doctorId, LocalDate date, int startMinute);
+
+        /** How long an existing appointment starting at that minute keeps the doctor busy. */
+        int occupiedLength(int doctorId, LocalDate date, int startMinute);
+    }
+
+    private final DayLoader loader;
+    private final SlotRules rules;
+
+    // (doctorId, epochDay) packed into one long -> that day's intervals
+    private final ConcurrentHashMap<Long, DaySlots> days = new ConcurrentHashMap<>();
+    // appointment ID -> day key, so a cancellation by ID can find its interval
+    private final ConcurrentHashMap<Integer, Long> appointmentDays = new ConcurrentHashMap<>();
+
+    // Changes that arrive while a load query is running are replayed onto the days it installs
+    private final AtomicInteger loadsInFlight = new AtomicInteger();
+    private final Map<Integer, Appointment> pendingBooked = new ConcurrentHashMap<>();
+    private final Set<Integer> pendingReleased = ConcurrentHashMap.newKeySet();
+
+    public BookingEngine(DayLoader loader, SlotRules rules) {
+        this.loader = loader;
+        this.rules = rules;
+    }
+
+    /**
+     * Checks the slot and, if it is free, reserves it atomically. A granted reservation must be
+     * either confirm()ed with the new appointment ID or release()d if the INSERT fails.
+     */
+    public Reservation reserve(int doctorId, LocalDate date, int startMinute) throws SQLException {
+        int length = rules.bookableLength(doctorId, date, startMinute);
+        if (length <= 0) {
+            return new Reservation(0L, null, startMinute, false); // not a slot of the doctor's schedule
+        }
+        long key = dayKey(doctorId, date);
+        DaySlots day = dayFor(key, doctorId, date);
+        int end = startMinute + length;
+
+        synchronized (day) {
+            if (day.conflicts(startMinute, end)) {
+                return new Reservation(key, day, startMinute, false);
+            }
+            day.slots.put(startMinute, new Slot(end));
+            return new Reservation(key, day, startMinute, true);
+        }
+    }
+
+    /** True if a template slot starts at that minute and nothing overlaps it. */
+    public boolean isFree(int doctorId, LocalDate date, int startMinute) throws SQLException {
+        int length = rules.bookableLength(doctorId, date, startMinute);
+        if (length <= 0) {
+            return false;
+        }
+        DaySlots day = dayFor(dayKey(doctorId, date), doctorId, date);
+        synchronized (day) {
+            return !day.conflicts(startMinute, startMinute + length);
+        }
+    }
+
+    /**
+     * An active appointment booked by another instance: its interval stops being free (no-op if its
+     * day is not indexed, or the appointment already is).
+     */
+    public void onBooked(Appointment app) {
+        if (!app.isScheduled()) {
+            return;
+        }
+        if (loadsInFlight.get() > 0) {
+            pendingBooked.put(app.getId(), app);
+        }
+        long key = dayKey(app.getDoctorId(), app.getDate());
+        DaySlots day = days.get(key);
+        if (day != null) {
+            book(key, day, app);
+        }
+    }
+
+    /** Frees the interval of a cancelled or completed appointment (no-op if its day is not indexed). */
+    public void onCancelled(int appointmentId) {
+        if (loadsInFlight.get() > 0) {
+            pendingBooked.remove(appointmentId);
+            pendingReleased.add(appointmentId);
+        }
+        Long key = appointmentDays.remove(appointmentId);
+        DaySlots day = key != null ? days.get(key) : null;
+        if (day != null) {
+            release(day, appointmentId);
+        }
+    }
+
+    /**
+     * Loads all of the doctor's days that are not indexed yet with one query, so checking a whole
+     * series of dates (see DBManager.bookSeries) does not cost a query per day.
+     */
+    public void preload(int doctorId, Collection<LocalDate> dates) throws SQLException {
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate date : dates) {
+            if (!days.containsKey(dayKey(doctorId, date))) {
+                missing.add(date);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        loadsInFlight.incrementAndGet();
+        try {
+            Map<LocalDate, Map<Integer, Integer>> booked = loader.loadBookedStarts(doctorId, missing);
+            for (LocalDate date : missing) {
+                install(dayKey(doctorId, date), doctorId, date, booked.getOrDefault(date, Collections.emptyMap()));
+            }
+        } finally {
+            endLoad();
+        }
+    }
+
+    /** Drops a doctor-day so it is reloaded from the database on next use (e.g. after a unique-key clash). */
+    public void invalidate(int doctorId, LocalDate date) {
+        days.remove(dayKey(doctorId, date));
+    }
+
+    public void invalidateAll() {
+        days.clear();
+        appointmentDays.clear();
+    }
+
+    private DaySlots dayFor(long key, int doctorId, LocalDate date) throws SQLException {
+        DaySlots day = days.get(key);
+        if (day != null) {
+            return day;
+        }
+
+        // Load outside any lock; if two threads race, the first one stored wins and both use it
+        loadsInFlight.incrementAndGet();
+        try {
+            Map<Integer, Integer> booked = loader.loadBookedStarts(doctorId, Collections.singletonList(date))
+                                                 .getOrDefault(date, Collections.emptyMap());
+            return install(key, doctorId, date, booked);
+        } finally {
+            endLoad();
+        }
+    }
+
+    private void endLoad() {
+        if (loadsInFlight.decrementAndGet() == 0) {
+            pendingBooked.clear();
+            pendingReleased.clear();
+        }
+    }
+
+    private DaySlots install(long key, int doctorId, LocalDate date, Map<Integer, Integer> booked) {
+        DaySlots loaded = new DaySlots();
+        for (Map.Entry<Integer, Integer> e : booked.entrySet()) {
+            int start = e.getValue();
+            Slot slot = loaded.slots.computeIfAbsent(start, s -> new Slot(s + rules.occupiedLength(doctorId, date, s)));
+            slot.appointmentIds.add(e.getKey());
+        }
+
+        DaySlots day = days.putIfAbsent(key, loaded);
+        if (day == null) {
+            day = loaded;
+            for (Integer appointmentId : booked.keySet()) {
+                appointmentDays.put(appointmentId, key);
+            }
+            // Changes committed while the query ran; ones it already saw are no-ops
+            for (Appointment app : pendingBooked.values()) {
+                if (app.getDoctorId() == doctorId && app.getDate().equals(date)) {
+                    book(key, day, app);
+                }
+            }
+            for (int appointmentId : pendingReleased) {
+                if (appointmentDays.remove(appointmentId, key)) {
+                    release(day, appointmentId);
+                }
+            }
+            evictPastDays();
+        }
+        return day;
+    }
+
+    private void book(long key, DaySlots day, Appointment app) {
+        int start = app.getMinuteOfDay();
+        synchronized (day) {
+            Slot slot = day.slots.computeIfAbsent(start,
+                s -> new Slot(s + rules.occupiedLength(app.getDoctorId(), app.getDate(), s)));
+            if (!slot.appointmentIds.contains(app.getId())) {
+                slot.appointmentIds.add(app.getId());
+            }
+            appointmentDays.put(app.getId(), key);
+        }
+    }
+
+    private void release(DaySlots day, int appointmentId) {
+        synchronized (day) {
+            day.slots.values().removeIf(slot -> slot.appointmentIds.remove((Integer) appointmentId)
+                                                && slot.appointmentIds.isEmpty());
+        }
+    }
+
+    private void evictPastDays() {
+        long today = LocalDate.now().toEpochDay();
+        days.keySet().removeIf(key -> (key & 0xFFFFFFFFL) < today);
+        appointmentDays.values().removeIf(key -> (key & 0xFFFFFFFFL) < today);
+    }
+
+    private static long dayKey(int doctorId, LocalDate date) {
+        return ((long) doctorId << 32) | (date.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    // ----------------------------------------------------------------------
+    // One doctor-day: TreeMap of non-overlapping intervals keyed by start minute
+    // ----------------------------------------------------------------------
+    private static final class DaySlots {
+        final TreeMap<Integer, Slot> slots = new TreeMap<>();
+
+        /** O(log n): only the interval starting at or before start and the next one after it can overlap. */
+        boolean conflicts(int start, int end) {
+            Map.Entry<Integer, Slot> before = slots.floorEntry(start);
+            if (before != null && before.getValue().end > start) {
+                return true;
+            }
+            Integer after = slots.higherKey(start);
+            return after != null && after < end;
+        }
+    }
+
+    private static final class Slot {
+        final int end;
+        final List<Integer> appointmentIds = new ArrayList<>(1); // empty while only reserved
+
+        Slot(int end) {
+            this.end = end;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Result of reserve()
+    // ----------------------------------------------------------------------
+    public final class Reservation {
+        private final long key;
+        private final DaySlots day;
+        private final int startMinute;
+        private final boolean granted;
+
+        private Reservation(long key, DaySlots day, int startMinute, boolean granted) {
+            this.key = key;
+            this.day = day;
+            this.startMinute = startMinute;
+            this.granted = granted;
+        }
+
+        public boolean isGranted() {
+            return granted;
+        }
+
+        /** False if no template slot starts at that minute (refused without looking at bookings). */
+        public boolean isInSchedule() {
+            return day != null;
+        }
+
+        /** Binds the reserved interval to the appointment that was inserted for it. */
+        public void confirm(int appointmentId) {
+            synchronized (day) {
+                Slot slot = day.slots.get(startMinute);
+                if (slot != null && !slot.appointmentIds.contains(appointmentId)) {
+                    slot.appointmentIds.add(appointmentId);
+                }
+                appointmentDays.put(appointmentId, key);
+            }
+        }
+
+        /** Gives the interval back after a failed INSERT. */
+        public void release() {
+            synchronized (day) {
+                Slot slot = day.slots.get(startMinute);
+                if (slot != null && slot.appointmentIds.isEmpty()) {
+                    day.slots.remove(startMinute);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+import java.time.LocalDateTime;
+
+/**
+ * One booking in a DBManager.bookAppointments() batch.
+ */
+public class BookingRequest {
+    private final int patientId;
+    private final int doctorId;
+    private final LocalDateTime start;
+
+    public BookingRequest(int patientId, int doctorId, LocalDateTime start) {
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.start = start;
+    }
+
+    public int getPatientId() { return patientId; }
+    public int getDoctorId() { return doctorId; }
+    public LocalDateTime getStart() { return start; }
+
+    @Override
+    public String toString() {
+        return "patient " + patientId + " with doctor " + doctorId + " at " + start;
+    }
+}
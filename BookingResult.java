@@ -0,0 +1,64 @@
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of DBManager.tryBookAppointment(): the new appointment, or why it was not booked
+ * (slot taken, with nearby free slots to offer instead; a time that cannot be booked at all, e.g.
+ * in the past or outside the doctor's schedule; or a database error).
+ */
+public class BookingResult {
+
+    public enum Outcome { BOOKED, CONFLICT, NOT_BOOKABLE, ERROR }
+
+    private final Outcome outcome;
+    private final Appointment appointment;
+    private final List<LocalDateTime> alternatives;
+    private final String message;
+
+    private BookingResult(Outcome outcome, Appointment appointment, List<LocalDateTime> alternatives, String message) {
+        this.outcome = outcome;
+        this.appointment = appointment;
+        this.alternatives = Collections.unmodifiableList(alternatives);
+        this.message = message;
+    }
+
+    public static BookingResult booked(Appointment appointment) {
+        return new BookingResult(Outcome.BOOKED, appointment, Collections.emptyList(), null);
+    }
+
+    public static BookingResult conflict(List<LocalDateTime> alternatives) {
+        return new BookingResult(Outcome.CONFLICT, null, alternatives, "The doctor is not available at that time.");
+    }
+
+    /** The time is not a slot anyone could book (no point offering the waiting list). */
+    public static BookingResult notBookable(String message) {
+        return new BookingResult(Outcome.NOT_BOOKABLE, null, Collections.emptyList(), message);
+    }
+
+    public static BookingResult error(String message) {
+        return new BookingResult(Outcome.ERROR, null, Collections.emptyList(), message);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isBooked() {
+        return outcome == Outcome.BOOKED;
+    }
+
+    /** The new appointment; null unless BOOKED. */
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    /** Free slots near the requested time, soonest first (only for CONFLICT; may be empty). */
+    public List<LocalDateTime> getAlternatives() {
+        return alternatives;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
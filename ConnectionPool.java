@@ -0,0 +1,450 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small bounded JDBC connection pool backing DBManager.getConnection().
+ *
+ * Connections handed out are thin proxies: calling close() (e.g. at the end of a
+ * try-with-resources block) returns the physical connection to the pool instead of
+ * tearing down the TCP session, so callers keep using the usual JDBC idiom.
+ */
+public class ConnectionPool {
+
+    private static final Log LOG = Log.get("db.pool");
+
+    // Upper bounds (in ms) of the wait-time histogram buckets. The last bucket counts everything slower.
+    private static final long[] WAIT_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    // --- Pool state (guarded by lock) ---
+    private final ReentrantLock lock = new ReentrantLock(true); // fair: waiters are served in arrival order
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // LIFO: most recently used at the head
+    private int totalCount;  // idle + leased + being opened
+    private int activeCount; // leased to callers
+    private int waiterCount;
+    private boolean closed;
+
+    // --- Monitoring counters ---
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKETS_MS.length + 1);
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String user, String pass, int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = 2;
+        this.statementCacheSize = statementCacheSize;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        // The first run also warms the pool up to minSize without blocking the caller.
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the acquire timeout when the pool is exhausted.
+     * Idle connections are validated before being handed out; dead ones are discarded.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+        while (true) {
+            PooledConnection pc = null;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed.");
+                    }
+                    pc = idle.pollFirst();
+                    if (pc != null || totalCount < maxSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis +
+                                " ms waiting for a database connection (pool size " + maxSize + ").");
+                    }
+                    waiterCount++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    } finally {
+                        waiterCount--;
+                    }
+                }
+                if (pc == null) {
+                    totalCount++; // reserve the slot; the physical connect happens outside the lock
+                }
+                activeCount++;
+            } finally {
+                lock.unlock();
+            }
+
+            if (pc == null) {
+                try {
+                    pc = new PooledConnection(DriverManager.getConnection(url, user, pass));
+                    createdCount.incrementAndGet();
+                } catch (SQLException e) {
+                    discard(null);
+                    throw e;
+                }
+            } else if (!isValid(pc)) {
+                discard(pc);
+                continue; // try the next idle connection (or open a new one)
+            }
+
+            recordWait(System.nanoTime() - start);
+            acquiredCount.incrementAndGet();
+            return pc.lease();
+        }
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.raw.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Called by a lease when the caller closes it. */
+    private void release(PooledConnection pc) {
+        boolean reusable = !pc.broken;
+        if (reusable) {
+            pc.statements.releaseAll();
+            try {
+                // Undo per-caller state, e.g. bookNewAppointment turns auto-commit off.
+                if (!pc.raw.getAutoCommit()) {
+                    pc.raw.rollback();
+                    pc.raw.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+        if (!reusable) {
+            discard(pc);
+            return;
+        }
+
+        lock.lock();
+        try {
+            activeCount--;
+            if (!closed) {
+                pc.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pc);
+                available.signal();
+                return;
+            }
+            totalCount--;
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(pc);
+    }
+
+    /** Drops a leased (or never-opened, when pc is null) connection and frees its slot. */
+    private void discard(PooledConnection pc) {
+        lock.lock();
+        try {
+            totalCount--;
+            activeCount--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (pc != null) {
+            closeQuietly(pc);
+        }
+    }
+
+    /** Evicts connections idle for longer than the idle timeout and tops the pool back up to minSize. */
+    private void housekeep() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        int toOpen;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && totalCount > minSize) {
+                PooledConnection pc = oldestFirst.next();
+                if (pc.lastUsed > cutoff) {
+                    break;
+                }
+                oldestFirst.remove();
+                totalCount--;
+                evicted.add(pc);
+            }
+            toOpen = Math.max(0, minSize - totalCount);
+            totalCount += toOpen;
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pc : evicted) {
+            closeQuietly(pc);
+            evictedCount.incrementAndGet();
+        }
+        for (int i = 0; i < toOpen; i++) {
+            PooledConnection pc = null;
+            try {
+                pc = new PooledConnection(DriverManager.getConnection(url, user, pass));
+                createdCount.incrementAndGet();
+            } catch (SQLException e) {
+                LOG.error("Connection pool warm-up failed: " + e.getMessage());
+            }
+            lock.lock();
+            try {
+                if (pc == null || closed) {
+                    totalCount--;
+                } else {
+                    idle.offerLast(pc);
+                    available.signal();
+                    pc = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (pc != null) {
+                closeQuietly(pc);
+            }
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        int bucket = 0;
+        while (bucket < WAIT_BUCKETS_MS.length && waitMillis > WAIT_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    private static void closeQuietly(PooledConnection pc) {
+        try {
+            pc.raw.close();
+        } catch (SQLException e) {
+            // Nothing useful to do; the connection is being thrown away anyway.
+        }
+    }
+
+    /** Closes all idle connections; leased connections are closed as they are returned. */
+    public void shutdown() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            totalCount -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        toClose.forEach(ConnectionPool::closeQuietly);
+    }
+
+    public Stats getStats() {
+        long[] histogram = new long[waitHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = waitHistogram.get(i);
+        }
+        lock.lock();
+        try {
+            return new Stats(activeCount, idle.size(), totalCount, waiterCount,
+                             acquiredCount.get(), createdCount.get(), evictedCount.get(), timeoutCount.get(),
+                             statementHits.get(), statementMisses.get(), histogram);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Physical connection + lease proxy
+    // ----------------------------------------------------------------------
+    private final class PooledConnection {
+        final Connection raw;
+        final StatementCache statements;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile boolean broken;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statements = new StatementCache(raw, statementCacheSize, statementHits, statementMisses,
+                                                 () -> broken = true);
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new Lease(this));
+        }
+    }
+
+    /** Forwards calls to the physical connection until the caller closes it. */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean returned;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pc.raw;
+                // The raw connection must not leak: closing it would bypass the pool and its statement cache
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("A pooled connection cannot be unwrapped to " + ((Class<?>) args[0]).getName() + ".");
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) go through the statement cache
+            if (method.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || args[1] instanceof Integer)) {
+                int keys = args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1];
+                return pc.statements.prepare((Connection) proxy, (String) args[0], keys);
+            }
+            try {
+                return method.invoke(pc.raw, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQLState class 08 = connection exception: do not hand this connection out again.
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        pc.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Monitoring snapshot
+    // ----------------------------------------------------------------------
+    public static final class Stats {
+        public final int active;
+        public final int idle;
+        public final int total;
+        public final int waiters;
+        public final long acquired;
+        public final long created;
+        public final long evicted;
+        public final long timeouts;
+        public final long statementCacheHits;
+        public final long statementCacheMisses;
+        private final long[] waitHistogram;
+
+        Stats(int active, int idle, int total, int waiters, long acquired, long created,
+              long evicted, long timeouts, long statementCacheHits, long statementCacheMisses,
+              long[] waitHistogram) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.waiters = waiters;
+            this.acquired = acquired;
+            this.created = created;
+            this.evicted = evicted;
+            this.timeouts = timeouts;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+            this.waitHistogram = waitHistogram;
+        }
+
+        /** Bucket counts; bucket i covers waits up to getWaitBucketBoundsMillis()[i], the last one is open-ended. */
+        public long[] getWaitHistogram() { return waitHistogram.clone(); }
+        public static long[] getWaitBucketBoundsMillis() { return WAIT_BUCKETS_MS.clone(); }
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", idle=" + idle + ", total=" + total + ", waiters=" + waiters +
+                   ", acquired=" + acquired + ", created=" + created + ", evicted=" + evicted +
+                   ", timeouts=" + timeouts + ", stmtCacheHits=" + statementCacheHits +
+                   ", stmtCacheMisses=" + statementCacheMisses + ", waitHistogram(ms<=" + Arrays.toString(WAIT_BUCKETS_MS) +
+                   ",+inf)=" + Arrays.toString(waitHistogram);
+        }
+    }
+}
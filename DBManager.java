@@ -1,79 +1,351 @@
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalTime;
 
 // NOTE: This code assumes external classes Doctor and Appointment exist
 // and have the required methods/constructors.
 
 public class DBManager {
 
-    // --- 1. Connection Details ---
-    private static final String URL = "jdbc:mysql://localhost:3306/appointment_booking_db";
-    private static final String USER = "root";
-    private static final String PASS = "vedbhumi";
+    private static final Log LOG = Log.get("db");
+
+    // --- 1. Connection Details (override with -Ddb.url / -Ddb.user / -Ddb.password, e.g. the benchmarks' embedded database) ---
+    // useServerPrepStmts keeps real server-side prepared statements, which the per-connection StatementCache reuses;
+    // zeroDateTimeBehavior maps '0000-00-00' to NULL so it reads as an unscheduled appointment;
+    // rewriteBatchedStatements sends an INSERT batch as one multi-row INSERT (see bookAppointments)
+    private static final String URL = System.getProperty("db.url",
+        "jdbc:mysql://localhost:3306/appointment_booking_db?useServerPrepStmts=true" +
+        "&zeroDateTimeBehavior=CONVERT_TO_NULL&rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("db.user", "root");
+    private static final String PASS = System.getProperty("db.password", "vedbhumi");
+    private static final boolean MYSQL = URL.startsWith("jdbc:mysql:"); // else e.g. the benchmarks' H2
+
+    // --- Connection Pool Settings (override with -Ddb.pool.*) ---
+    private static final int POOL_MIN_SIZE = Integer.getInteger("db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = Long.getLong("db.pool.acquireTimeoutMs", 5000L);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 300000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("db.pool.statementCacheSize", 32);
+    private static final boolean RUN_MIGRATIONS = Boolean.parseBoolean(System.getProperty("db.migrate", "true"));
+
+    // --- Doctor Cache Settings (override with -Ddoctor.cache.*) ---
+    private static final int DOCTOR_CACHE_MAX_SIZE = Integer.getInteger("doctor.cache.maxSize", 500);
+    private static final long DOCTOR_CACHE_TTL_MS = Long.getLong("doctor.cache.ttlMs", 600000L);
+    // Wait between attempts while the doctor directory has never loaded (see getDoctorDirectory)
+    private static final long DOCTOR_DIRECTORY_RETRY_MS = Long.getLong("doctor.directory.retryMs", 5000L);
+    // Wait between attempts while the doctor schedules have never loaded (see getDoctorSchedule)
+    private static final long DOCTOR_SCHEDULE_RETRY_MS = Long.getLong("doctor.schedule.retryMs", 5000L);
 
     // --- DSA Implementation for Caching and Queuing ---
-    private static final Map<Integer, Doctor> DOCTORS_CACHE = new HashMap<>(); 
-    private static final Queue<Integer> CANCELLATION_QUEUE = new LinkedList<>();
+    private static final DoctorCache DOCTORS_CACHE = new DoctorCache(DOCTOR_CACHE_MAX_SIZE, DOCTOR_CACHE_TTL_MS);
+
+    // --- Booking Settings (override with -Dbooking.*) ---
+    private static final int BOOKING_DURATION_MINUTES = Integer.getInteger("booking.durationMinutes", 30);
+    private static final int BOOKING_OPEN_HOUR = Integer.getInteger("booking.openHour", 9);
+    private static final int BOOKING_CLOSE_HOUR = Integer.getInteger("booking.closeHour", 17);
+    private static final int AVAILABILITY_HORIZON_DAYS = Integer.getInteger("availability.horizonDays", 30);
+    private static final int REALLOCATION_QUEUE_CAPACITY = Integer.getInteger("waitlist.queueCapacity", 1000);
+    private static final int WAITLIST_CANDIDATES = 5; // waitlist entries tried per freed slot
+    private static final long CHANGE_POLL_INTERVAL_MS = Long.getLong("changes.pollIntervalMs", 2000L); // 0 disables
+    // How long a missing change ID may hold the poller back before it is taken as rolled back
+    private static final long CHANGE_GAP_TIMEOUT_MS = Long.getLong("changes.gapTimeoutMs", 10000L);
+
+    // Template for doctors without rows in doctor_schedules: clinic hours every day
+    private static final DoctorSchedule DEFAULT_SCHEDULE =
+        DoctorSchedule.everyDay(BOOKING_OPEN_HOUR * 60, BOOKING_CLOSE_HOUR * 60, BOOKING_DURATION_MINUTES);
+
+    // doctor_schedules + doctor_schedule_exceptions by doctor ID; null until first loaded
+    private static volatile Map<Integer, DoctorSchedule> doctorSchedules;
+    private static final Object SCHEDULE_LOCK = new Object();
+    private static long scheduleRetryAtNanos = System.nanoTime(); // guarded by SCHEDULE_LOCK
+    private static boolean scheduleLoadFailed; // guarded by SCHEDULE_LOCK: availability was built from clinic hours
+
+    // Free slots per doctor-day, kept current on every booking/cancellation (see AvailabilityCalendar)
+    private static final AvailabilityCalendar AVAILABILITY = new AvailabilityCalendar(
+        DBManager::getDoctorSchedule, DBManager::loadActiveAppointments, BOOKING_DURATION_MINUTES);
+
+    // Per doctor-day interval index: conflict checks without a query (see BookingEngine)
+    private static final BookingEngine BOOKING_ENGINE = new BookingEngine(DBManager::loadBookedStarts, AVAILABILITY);
+
+    // DSA: bounded queue of freed slots, drained by one background thread into the waitlist
+    private static final SlotReallocator REALLOCATOR =
+        new SlotReallocator(REALLOCATION_QUEUE_CAPACITY, DBManager::reallocateFreedSlot);
+
+    // Committed bookings and status changes, for open windows (see AppointmentEventBus)
+    private static final AppointmentEventBus EVENTS = new AppointmentEventBus();
+
+    // Each doctor's day (appointments, status counts), kept current from EVENTS (see DayScheduleStore)
+    private static final DayScheduleStore DAY_SCHEDULES = new DayScheduleStore(DBManager::loadDoctorDay);
+
+    // Changes made by other instances, read from the appointment_changes log; null if disabled
+    private static final AppointmentChangePoller CHANGE_POLLER = CHANGE_POLL_INTERVAL_MS > 0
+        ? new AppointmentChangePoller(new ChangeLogSource(), EVENTS, CHANGE_POLL_INTERVAL_MS, CHANGE_GAP_TIMEOUT_MS)
+        : null;
+
+    private static final String NOT_AUTHORIZED = "Your session has expired or does not allow this. Please log in again.";
+    private static final String PAST_START = "That time has already passed.";
+    private static final String OUTSIDE_SCHEDULE = "The doctor does not see patients at that time.";
+
+    // MySQL: duplicate key, here the uq_appt_doctor_active_slot index
+    private static final int ER_DUP_ENTRY = 1062;
+
+    private static final String INSERT_APPOINTMENT_SQL =
+        "INSERT INTO appointments (doctor_id, patient_id, appointment_date, appointment_time, status) " +
+        "VALUES (?, ?, ?, ?, 'booked')";
+
+    // Compare-and-set on (status, version); see compareAndSetStatus
+    private static final String CAS_STATUS_SQL =
+        "UPDATE appointments SET status = ?, version = version + 1 " +
+        "WHERE appointment_id = ? AND status = ? AND version = ?";
+    // The same, only for one doctor's appointment (a doctor changing their own queue)
+    private static final String CAS_DOCTOR_STATUS_SQL = CAS_STATUS_SQL + " AND doctor_id = ?";
+    private static final String READ_STATUS_SQL =
+        "SELECT status, version, doctor_id FROM appointments WHERE appointment_id = ?";
+    private static final int ANY_DOCTOR = 0; // doctor_id is AUTO_INCREMENT, so never 0
+
+    // Copies the rows' new state into the change log; run inside the mutating transaction (see logChanges)
+    private static final String LOG_CHANGES_SQL =
+        "INSERT INTO appointment_changes " +
+        "(appointment_id, doctor_id, patient_id, appointment_date, appointment_time, status, version) " +
+        "SELECT appointment_id, doctor_id, patient_id, appointment_date, appointment_time, status, version " +
+        "FROM appointments WHERE appointment_id IN (";
+    private static final String CHANGE_COLUMNS =
+        "SELECT change_id, appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status, version " +
+        "FROM appointment_changes ";
+
+    // IN (...) list lengths used by logChanges / loadActiveAppointments / loadBookedStarts (see inListPlaceholders)
+    private static final int[] IN_LIST_SIZES = {1, 8, 64, 512};
+
+    private static final ConnectionPool POOL;
+
+    // One UPDATE per target status; its IN (...) list holds the legal source statuses
+    private static final Map<AppointmentStatus, String> TRANSITION_SQL = buildTransitionSql();
+
+    // Pre-sorted snapshot of the doctors table; null until first loaded (copy-on-write, see DoctorDirectory).
+    // Re-read once it is older than the doctor cache TTL, so edits to the table show up like cache entries do.
+    private static volatile DoctorDirectory doctorDirectory;
+    private static volatile long directoryExpiresAtNanos; // written under DIRECTORY_LOCK
+    private static final Object DIRECTORY_LOCK = new Object();
+    private static final AtomicBoolean DIRECTORY_RELOADING = new AtomicBoolean();
+    private static long directoryRetryAtNanos = System.nanoTime(); // guarded by DIRECTORY_LOCK
+
+    static {
+        if (MYSQL) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                LOG.error("MySQL JDBC Driver not found.");
+            }
+        }
+        POOL = new ConnectionPool(URL, USER, PASS, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                                  POOL_ACQUIRE_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, STATEMENT_CACHE_SIZE);
+        Runtime.getRuntime().addShutdownHook(new Thread(POOL::shutdown, "db-pool-shutdown"));
+
+        if (RUN_MIGRATIONS) {
+            migrateSchema(); // throws, so the application does not start on a half-migrated schema
+        }
+
+        // Write-through: every committed change (local, or from the poller) updates the cached days
+        EVENTS.subscribe(DAY_SCHEDULES::apply);
+        // Bookings and cancellations made by other instances also move the conflict index and free slots
+        EVENTS.subscribe(DBManager::applyRemoteChange);
+    }
+
+    /**
+     * Brings the database schema (indexes, columns) up to date. Runs once at startup.
+     * @throws IllegalStateException If a migration fails: bookings, status updates and the change log
+     *         all need the later migrations, so the application must not run without them.
+     */
+    public static void migrateSchema() {
+        try (Connection conn = getConnection()) {
+            SchemaMigrator.migrate(conn);
+        } catch (SQLException e) {
+            LOG.error("Schema migration failed: " + e.getMessage(), e);
+            throw new IllegalStateException("Schema migration failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Starts the database layer now (connection pool, schema migrations) rather than on first use,
+     * so the entry points can stop before opening a window if it fails. The work is done by the class
+     * initializer; if it failed, this throws ExceptionInInitializerError (cause: the migration error).
+     */
+    public static void start() {
+    }
 
+    /**
+     * Borrows a connection from the shared pool. Closing it hands it back to the pool,
+     * so callers keep using try-with-resources exactly as before.
+     */
     public static Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        boolean failed = true;
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found.");
-            throw new SQLException("JDBC Driver not available.", e);
+            Connection conn = POOL.getConnection();
+            failed = false;
+            return conn;
+        } finally {
+            DBMetrics.recordAcquire(System.nanoTime() - start, failed);
         }
-        // Set connection timeout (e.g., 5 seconds) if supported by the driver, though this is usually done via driver properties.
-        return DriverManager.getConnection(URL, USER, PASS); 
+    }
+
+    /**
+     * Snapshot of the connection pool (active, idle, waiters, wait-time histogram and
+     * prepared-statement cache hits/misses) for monitoring.
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return POOL.getStats();
     }
     
     // ----------------------------------------------------------------------
-    // DSA: PriorityQueue for Upcoming Appointments (Sorting/Priority)
+    // Sorted Upcoming Appointments (ordered by MySQL via the patient/status/date/time index)
     // ----------------------------------------------------------------------
-    public static List<Appointment> getSortedAppointments(int patientId) {
-        // CRITICAL FIX: Add patient_id to the SELECT list
-        String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status " +
-                     "FROM appointments WHERE patient_id = ? AND status = 'booked'"; 
-        
-        PriorityQueue<Appointment> sortedQueue = new PriorityQueue<>(
-            Comparator.comparing(Appointment::getDateTime)
-        );
+    // Not principal-checked: package-private for the benchmarks; the screens use getPatientAppointmentsWithDoctors(AuthResult)
+    static List<Appointment> getSortedAppointments(int patientId) {
+        DBMetrics.Timer timer = DBMetrics.start("getSortedAppointments");
+        try (timer) {
+            // Rows already arrive in date/time order, so a plain append keeps the list sorted
+            List<Appointment> sortedList = new ArrayList<>();
+            forEachSortedAppointment(patientId, sortedList::add);
+            return sortedList;
+        }
+    }
 
-        try (Connection conn = getConnection(); 
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Streams a patient's 'booked' appointments, soonest first, to the given consumer one row at a time
+     * without buffering the whole result set (useful for patients with thousands of rows).
+     * @param patientId The ID of the patient.
+     * @param action Called once per appointment, in date/time order.
+     * @return true if all rows were read, false if a database error occurred.
+     */
+    private static boolean forEachSortedAppointment(int patientId, Consumer<Appointment> action) {
+        DBMetrics.Timer timer = DBMetrics.start("forEachSortedAppointment");
+        try (timer) {
+            // CRITICAL FIX: Add patient_id to the SELECT list
+            // ORDER BY matches idx_appt_patient_status_datetime, so MySQL reads rows in order without a filesort
+            String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status, version " +
+                         "FROM appointments WHERE patient_id = ? AND status = 'booked' " +
+                         "ORDER BY appointment_date ASC, appointment_time ASC"; 
+
+            try (Connection conn = getConnection(); 
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setInt(1, patientId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String date = rs.getString("appointment_date");
-                    String time = rs.getString("appointment_time");
-
-                    // Ensure the concatenation handles NULL gracefully 
-                    String fullDateTime = (date != null && !date.trim().isEmpty() ? date : "0000-00-00") + " " + 
-                                          (time != null && !time.trim().isEmpty() ? time : "00:00");
-
-                    // Since we selected it, we can fetch patient_id from the result set
-                    Appointment app = new Appointment(
-                        rs.getInt("appointment_id"),
-                        rs.getInt("patient_id"), 
-                        rs.getInt("doctor_id"), 
-                        fullDateTime,
-                        rs.getString("status")
-                    );
-                    sortedQueue.offer(app);
+                pstmt.setInt(1, patientId);
+                // Connector/J streams rows one by one instead of buffering the full result set;
+                // other drivers reject a negative fetch size
+                if (MYSQL) {
+                    pstmt.setFetchSize(Integer.MIN_VALUE);
                 }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Appointment app = mapAppointment(rs);
+                        if (app != null) {
+                            action.accept(app);
+                        }
+                    }
+                }
+                return true;
+            } catch (SQLException e) {
+                LOG.error("Error fetching sorted appointments: " + e.getMessage(), e);
+                return false;
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching sorted appointments: " + e.getMessage());
-            e.printStackTrace();
         }
+    }
+
+    /**
+     * Fetches a patient's 'booked' appointments together with each doctor's name and specialization
+     * in a single JOIN query, sorted by date and time. Use this for list screens instead of
+     * getSortedAppointments + one getDoctorById per row.
+     * @param patientId The ID of the patient.
+     * @return The joined rows, soonest first (empty on error).
+     */
+    private static List<AppointmentView> getPatientAppointmentsWithDoctors(int patientId) {
+        DBMetrics.Timer timer = DBMetrics.start("getPatientAppointmentsWithDoctors");
+        try (timer) {
+            // LEFT JOIN so an appointment whose doctor row was deleted is still listed
+            String sql = "SELECT a.appointment_id, a.patient_id, a.doctor_id, a.appointment_date, a.appointment_time, " +
+                         "a.status, a.version, d.name AS doctor_name, d.specialization AS doctor_specialization " +
+                         "FROM appointments a LEFT JOIN doctors d ON d.doctor_id = a.doctor_id " +
+                         "WHERE a.patient_id = ? AND a.status = 'booked' " +
+                         "ORDER BY a.appointment_date ASC, a.appointment_time ASC";
+
+            List<AppointmentView> views = new ArrayList<>();
+
+            try (Connection conn = getConnection(); 
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+                pstmt.setInt(1, patientId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        AppointmentStatus status = readStatus(rs, rs.getInt("appointment_id"));
+                        if (status == null) {
+                            continue;
+                        }
+                        views.add(new AppointmentView(
+                            rs.getInt("appointment_id"),
+                            rs.getInt("patient_id"), 
+                            rs.getInt("doctor_id"), 
+                            readStartMinute(rs),
+                            status,
+                            rs.getInt("version"),
+                            rs.getString("doctor_name"),
+                            rs.getString("doctor_specialization")
+                        ));
+                    }
+                }
+            } catch (SQLException e) {
+                LOG.error("Error fetching appointments with doctors: " + e.getMessage(), e);
+            }
+            return views;
+        }
+    }
+
+    /**
+     * Maps the current row (appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status, version).
+     */
+    private static Appointment mapAppointment(ResultSet rs) throws SQLException {
+        int appointmentId = rs.getInt("appointment_id");
+        AppointmentStatus status = readStatus(rs, appointmentId);
+        if (status == null) {
+            return null;
+        }
+        return new Appointment(
+            appointmentId,
+            rs.getInt("patient_id"), 
+            rs.getInt("doctor_id"), 
+            readStartMinute(rs),
+            status,
+            rs.getInt("version")
+        );
+    }
 
-        List<Appointment> sortedList = new ArrayList<>();
-        while (!sortedQueue.isEmpty()) {
-            sortedList.add(sortedQueue.poll());
+    /**
+     * The row's status, or null (logged) for a NULL or unknown value, so one bad row is skipped
+     * instead of failing the whole result set.
+     */
+    private static AppointmentStatus readStatus(ResultSet rs, int appointmentId) throws SQLException {
+        String value = rs.getString("status");
+        try {
+            return AppointmentStatus.fromDbValue(value);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Skipping appointment " + appointmentId + ": " + e.getMessage());
+            return null;
         }
-        return sortedList;
+    }
+
+    /**
+     * Reads appointment_date/appointment_time as java.time values (no String round trip).
+     * Missing or zero dates map to Appointment.UNSCHEDULED.
+     */
+    private static long readStartMinute(ResultSet rs) throws SQLException {
+        LocalDate date = rs.getObject("appointment_date", LocalDate.class);
+        LocalTime time = rs.getObject("appointment_time", LocalTime.class);
+        return Appointment.toEpochMinute(date, time);
     }
     // Inside DBManager.java
 
@@ -81,81 +353,431 @@ public class DBManager {
 
 /**
  * Fetches all 'booked' appointments for a specific Doctor ID on the current date.
+ * Served from the in-memory day schedule (one query the first time the day is asked for).
  * @param doctorId The ID of the logged-in doctor.
- * @return A list of Appointment objects.
+ * @return A list of Appointment objects, soonest first (empty on error).
  */
-public static List<Appointment> getDoctorsTodayAppointments(int doctorId) {
-    // Get today's date in 'YYYY-MM-DD' format for SQL comparison
-    String today = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+private static List<Appointment> getDoctorsTodayAppointments(int doctorId) {
+    DBMetrics.Timer timer = DBMetrics.start("getDoctorsTodayAppointments");
+    try (timer) {
+        DayScheduleStore.DaySchedule day = todaysSchedule(doctorId);
+        return day != null ? day.withStatus(AppointmentStatus.BOOKED) : new ArrayList<>();
+    }
+}
 
-    String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status " +
-                 "FROM appointments WHERE doctor_id = ? AND appointment_date = ? AND status = 'booked' " +
-                 "ORDER BY appointment_time ASC"; 
-    
-    List<Appointment> todaysAppointments = new ArrayList<>();
+// Today's schedule of the doctor, loading it on first use; null on error
+private static DayScheduleStore.DaySchedule todaysSchedule(int doctorId) {
+    try {
+        return DAY_SCHEDULES.day(doctorId, LocalDate.now());
+    } catch (SQLException e) {
+        LOG.error("Error loading doctor's day schedule: " + e.getMessage());
+        return null;
+    }
+}
 
-    try (Connection conn = getConnection(); 
+// DayScheduleStore.DayLoader: every appointment of the doctor-day, any status
+private static List<Appointment> loadDoctorDay(int doctorId, LocalDate date) throws SQLException {
+    // Served by idx_appt_doctor_date_status_time
+    String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status, version " +
+                 "FROM appointments WHERE doctor_id = ? AND appointment_date = ?";
+    List<Appointment> appointments = new ArrayList<>();
+
+    try (Connection conn = getConnection();
          PreparedStatement pstmt = conn.prepareStatement(sql)) {
-        
         pstmt.setInt(1, doctorId);
-        pstmt.setString(2, today);
-        
-        System.out.println("DB_DEBUG: Fetching appointments for Dr. " + doctorId + " on " + today);
+        pstmt.setObject(2, date);
+        LOG.debug(() -> "Loading day schedule for Dr. " + doctorId + " on " + date);
 
         try (ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                String date = rs.getString("appointment_date");
-                String time = rs.getString("appointment_time");
-                String fullDateTime = date + " " + time; // Date and time are guaranteed by the query
-                
-                Appointment app = new Appointment(
-                    rs.getInt("appointment_id"),
-                    rs.getInt("patient_id"), 
-                    rs.getInt("doctor_id"), 
-                    fullDateTime,
-                    rs.getString("status")
-                );
-                todaysAppointments.add(app);
+                Appointment app = mapAppointment(rs);
+                if (app != null) {
+                    appointments.add(app);
+                }
             }
         }
-    } catch (SQLException e) {
-        System.err.println("Error fetching doctor's appointments: " + e.getMessage());
-        e.printStackTrace();
     }
-
-    return todaysAppointments;
+    return appointments;
 }
 
 // Inside DBManager.java
 
 /**
  * Updates the status of a single appointment in the database.
+ * Only legal transitions (see AppointmentStatus) are applied, e.g. a cancelled appointment
+ * can no longer be marked completed. Lost races are retried with RetryPolicy.DEFAULT.
  * @param appointmentId The ID of the appointment to update.
- * @param newStatus The new status (e.g., "completed", "cancelled", "in progress").
- * @return true if the update was successful, false otherwise.
+ * @param newStatus The new status (e.g. COMPLETED, CANCELLED, IN_PROGRESS).
+ * @return true if the update was successful, false if not found, illegal, or on error.
  */
-public static boolean updateAppointmentStatus(int appointmentId, String newStatus) {
-    String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ?";
-    
-    try (Connection conn = getConnection(); 
-         PreparedStatement pstmt = conn.prepareStatement(sql)) {
-        
-        pstmt.setString(1, newStatus);
+private static boolean updateAppointmentStatus(int appointmentId, AppointmentStatus newStatus) {
+    return updateStatus(ANY_DOCTOR, appointmentId, newStatus, RetryPolicy.DEFAULT).isUpdated();
+}
+
+/**
+ * Changes the status of an appointment the caller has already shown to a user, but only if the row
+ * is still exactly as read (same status and version) and belongs to the given doctor. If anyone
+ * changed it in the meantime the result is CONFLICT with the row's current state; this is not
+ * retried, because the user's decision was based on the old state. Another doctor's appointment is NOT_FOUND.
+ */
+private static StatusUpdateResult updateStatus(int doctorId, Appointment seen, AppointmentStatus newStatus) {
+    DBMetrics.Timer timer = DBMetrics.start("updateStatus");
+    try (timer) {
+        if (!seen.getStatus().canTransitionTo(newStatus)) {
+            return StatusUpdateResult.illegalTransition(seen.getStatus(), newStatus, seen.getVersion());
+        }
+        try {
+            return compareAndSetStatus(seen.getId(), doctorId, seen.getStatus(), seen.getVersion(), newStatus);
+        } catch (SQLException e) {
+            LOG.error("Error updating appointment status for ID " + seen.getId() + ": " + e.getMessage());
+            return StatusUpdateResult.error("Failed to update appointment: " + e.getMessage());
+        }
+    }
+}
+
+/**
+ * Changes the status of an appointment by ID: reads the current status and version, checks the
+ * transition, and applies it with a compare-and-set UPDATE. If another writer gets in between, the
+ * row is re-read and the transition re-checked before the next attempt (as allowed by the policy),
+ * so a concurrent cancellation is never overwritten by a later "completed".
+ * Unless doctorId is ANY_DOCTOR, another doctor's appointment is NOT_FOUND.
+ */
+private static StatusUpdateResult updateStatus(int doctorId, int appointmentId, AppointmentStatus newStatus,
+                                               RetryPolicy policy) {
+    DBMetrics.Timer timer = DBMetrics.start("updateStatusWithRetry");
+    try (timer) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                AppointmentStatus current;
+                int version;
+                try (Connection conn = getConnection();
+                     PreparedStatement pstmt = conn.prepareStatement(READ_STATUS_SQL)) {
+                    pstmt.setInt(1, appointmentId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next() || (doctorId != ANY_DOCTOR && rs.getInt("doctor_id") != doctorId)) {
+                            return StatusUpdateResult.notFound();
+                        }
+                        current = readStatus(rs, appointmentId);
+                        version = rs.getInt("version");
+                    }
+                }
+                if (current == null) {
+                    return StatusUpdateResult.error("Appointment " + appointmentId + " has an unknown status.");
+                }
+                if (!current.canTransitionTo(newStatus)) {
+                    return StatusUpdateResult.illegalTransition(current, newStatus, version);
+                }
+
+                StatusUpdateResult result = compareAndSetStatus(appointmentId, doctorId, current, version, newStatus);
+                if (result.getOutcome() != StatusUpdateResult.Outcome.CONFLICT || !policy.shouldRetry(attempt)) {
+                    return result;
+                }
+                Thread.sleep(policy.backoffMillis(attempt));
+            }
+        } catch (SQLException e) {
+            LOG.error("Error updating appointment status for ID " + appointmentId + ": " + e.getMessage());
+            return StatusUpdateResult.error("Failed to update appointment: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return StatusUpdateResult.error("Interrupted while retrying the update.");
+        }
+    }
+}
+
+/**
+ * One optimistic write: the UPDATE matches only if status and version are still the expected ones
+ * (and, unless doctorId is ANY_DOCTOR, the appointment is that doctor's), so no row lock is held between
+ * the caller's read and this write. On a miss the row is read back on the same connection to tell
+ * CONFLICT from NOT_FOUND.
+ */
+private static StatusUpdateResult compareAndSetStatus(int appointmentId, int doctorId, AppointmentStatus expectedStatus,
+                                                      int expectedVersion, AppointmentStatus newStatus) throws SQLException {
+    StatusUpdateResult result;
+    try (Connection conn = getConnection()) {
+        conn.setAutoCommit(false);
+        try {
+            result = applyCompareAndSet(conn, appointmentId, doctorId, expectedStatus, expectedVersion, newStatus);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+    if (result.isUpdated()) {
+        afterTransition(appointmentId, newStatus, result.getCurrentVersion());
+        if (newStatus == AppointmentStatus.CANCELLED) {
+            REALLOCATOR.submit(appointmentId);
+        }
+        LOG.debug(() -> "Appointment ID " + appointmentId + " status updated to " + newStatus.getDbValue());
+    }
+    return result;
+}
+
+private static StatusUpdateResult applyCompareAndSet(Connection conn, int appointmentId, int doctorId,
+                                                     AppointmentStatus expectedStatus, int expectedVersion,
+                                                     AppointmentStatus newStatus) throws SQLException {
+    try (PreparedStatement pstmt = conn.prepareStatement(doctorId == ANY_DOCTOR ? CAS_STATUS_SQL : CAS_DOCTOR_STATUS_SQL)) {
+        pstmt.setString(1, newStatus.getDbValue());
         pstmt.setInt(2, appointmentId);
-        
-        int rowsAffected = pstmt.executeUpdate();
-        
-        if (rowsAffected > 0) {
-            System.out.println("DB_DEBUG: Appointment ID " + appointmentId + " status updated to " + newStatus);
-            return true;
+        pstmt.setString(3, expectedStatus.getDbValue());
+        pstmt.setInt(4, expectedVersion);
+        if (doctorId != ANY_DOCTOR) {
+            pstmt.setInt(5, doctorId);
         }
-        return false;
+        if (pstmt.executeUpdate() > 0) {
+            logChanges(conn, Collections.singletonList(appointmentId));
+            return StatusUpdateResult.updated(newStatus, expectedVersion + 1);
+        }
+    }
+    try (PreparedStatement pstmt = conn.prepareStatement(READ_STATUS_SQL)) {
+        pstmt.setInt(1, appointmentId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next() || (doctorId != ANY_DOCTOR && rs.getInt("doctor_id") != doctorId)) {
+                return StatusUpdateResult.notFound();
+            }
+            AppointmentStatus current = readStatus(rs, appointmentId);
+            return current != null
+                ? StatusUpdateResult.conflict(current, rs.getInt("version"))
+                : StatusUpdateResult.error("Appointment " + appointmentId + " has an unknown status.");
+        }
+    }
+}
 
-    } catch (SQLException e) {
-        System.err.println("Error updating appointment status for ID " + appointmentId + ": " + e.getMessage());
-        e.printStackTrace();
+/**
+ * State machine guard: the UPDATE only matches a row whose current status may legally move to newStatus,
+ * so the check and the write are one atomic statement.
+ */
+private static boolean transitionStatus(int appointmentId, AppointmentStatus newStatus) throws SQLException {
+    Set<AppointmentStatus> allowedFrom = AppointmentStatus.predecessorsOf(newStatus);
+    if (allowedFrom.isEmpty()) {
         return false;
     }
+    String sql = TRANSITION_SQL.get(newStatus);
+
+    boolean updated;
+    try (Connection conn = getConnection()) {
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindTransition(pstmt, appointmentId, newStatus, allowedFrom);
+            updated = pstmt.executeUpdate() > 0;
+            if (updated) {
+                logChanges(conn, Collections.singletonList(appointmentId));
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+    if (updated) {
+        afterTransition(appointmentId, newStatus, AppointmentEvent.UNKNOWN_VERSION);
+    }
+    return updated;
+}
+
+private static void bindTransition(PreparedStatement pstmt, int appointmentId, AppointmentStatus newStatus,
+                                   Set<AppointmentStatus> allowedFrom) throws SQLException {
+    int i = 1;
+    pstmt.setString(i++, newStatus.getDbValue());
+    pstmt.setInt(i++, appointmentId);
+    for (AppointmentStatus from : allowedFrom) {
+        pstmt.setString(i++, from.getDbValue());
+    }
+}
+
+// Keeps the in-memory indexes in step with a committed status change and tells open windows
+private static void afterTransition(int appointmentId, AppointmentStatus newStatus, int newVersion) {
+    if (newStatus.isFinal()) {
+        // Completed/cancelled appointments no longer hold their slot (same rule as the active_slot column)
+        BOOKING_ENGINE.onCancelled(appointmentId);
+        AVAILABILITY.onReleased(appointmentId);
+    }
+    EVENTS.publish(AppointmentEvent.statusChanged(appointmentId, newStatus, newVersion));
+}
+
+// Change from the poller (another instance, or an echo of our own, which is then a no-op). Local
+// changes were already applied to BOOKING_ENGINE / AVAILABILITY by the code that made them.
+private static void applyRemoteChange(AppointmentEvent event) {
+    Appointment row = event.getAppointment();
+    if (!event.isRemote() || row == null) {
+        return;
+    }
+    if (row.getStatus().isFinal()) {
+        BOOKING_ENGINE.onCancelled(row.getId());
+        AVAILABILITY.onReleased(row.getId());
+    } else {
+        BOOKING_ENGINE.onBooked(row);
+        AVAILABILITY.onBooked(row);
+    }
+}
+
+/**
+ * Applies many status changes in one transaction, with one JDBC batch per target status
+ * (e.g. the end-of-day "complete all" in DoctorAppointmentsFrame) instead of a round trip each.
+ * The rows are first read and locked with one SELECT ... FOR UPDATE, so the transitions checked in
+ * memory still hold when the batch runs and each row's new version is known.
+ * Illegal transitions and unknown IDs simply report false, as in updateAppointmentStatus; unless
+ * doctorId is ANY_DOCTOR, so do other doctors' appointments.
+ * @param updates Appointment ID -> new status; results follow this map's iteration order.
+ * @param allOrNothing If true, any false item rolls back the whole batch (results still show which items failed).
+ * @return One flag per item: true if that appointment's status was changed.
+ */
+private static BatchResult<Boolean> updateStatuses(int doctorId, Map<Integer, AppointmentStatus> updates,
+                                                   boolean allOrNothing) {
+    DBMetrics.Timer timer = DBMetrics.start("updateStatuses");
+    try (timer) {
+        List<Map.Entry<Integer, AppointmentStatus>> items = new ArrayList<>(updates.entrySet());
+        List<Boolean> results = new ArrayList<>(Collections.nCopies(items.size(), Boolean.FALSE));
+        if (items.isEmpty()) {
+            return new BatchResult<>(results, true, 0);
+        }
+
+        Map<Integer, LockedRow> rows;
+        int succeeded = 0;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                rows = lockRows(conn, updates.keySet());
+
+                // Only legal transitions of rows the caller may change go into the batches
+                Map<AppointmentStatus, List<Integer>> byTarget = new EnumMap<>(AppointmentStatus.class);
+                int foreign = 0;
+                for (int i = 0; i < items.size(); i++) {
+                    LockedRow row = rows.get(items.get(i).getKey());
+                    if (row != null && doctorId != ANY_DOCTOR && row.doctorId != doctorId) {
+                        foreign++;
+                    } else if (row != null && row.status != null && row.status.canTransitionTo(items.get(i).getValue())) {
+                        byTarget.computeIfAbsent(items.get(i).getValue(), s -> new ArrayList<>()).add(i);
+                    }
+                }
+                if (foreign > 0) {
+                    LOG.warn("ACCESS: doctor " + doctorId + " may not update " + foreign + " of the appointments.");
+                }
+
+                List<Integer> unknown = new ArrayList<>();
+                for (Map.Entry<AppointmentStatus, List<Integer>> group : byTarget.entrySet()) {
+                    AppointmentStatus target = group.getKey();
+                    Set<AppointmentStatus> allowedFrom = AppointmentStatus.predecessorsOf(target);
+                    try (PreparedStatement pstmt = conn.prepareStatement(TRANSITION_SQL.get(target))) {
+                        for (int index : group.getValue()) {
+                            bindTransition(pstmt, items.get(index).getKey(), target, allowedFrom);
+                            pstmt.addBatch();
+                        }
+                        int[] counts = pstmt.executeBatch();
+                        for (int k = 0; k < counts.length; k++) {
+                            int index = group.getValue().get(k);
+                            if (counts[k] == Statement.SUCCESS_NO_INFO) {
+                                unknown.add(index); // the driver did not say; read the row back below
+                            } else if (counts[k] > 0) {
+                                results.set(index, Boolean.TRUE);
+                                succeeded++;
+                            }
+                        }
+                    }
+                }
+                succeeded += confirmUpdated(conn, items, rows, unknown, results);
+
+                if (allOrNothing && succeeded < items.size()) {
+                    conn.rollback();
+                    return new BatchResult<>(results, false, 0);
+                }
+                List<Integer> changed = new ArrayList<>(succeeded);
+                for (int i = 0; i < items.size(); i++) {
+                    if (results.get(i)) {
+                        changed.add(items.get(i).getKey());
+                    }
+                }
+                logChanges(conn, changed);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOG.error("Error updating appointment statuses in batch: " + e.getMessage());
+            return new BatchResult<>(new ArrayList<>(Collections.nCopies(items.size(), Boolean.FALSE)), false, 0);
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            if (results.get(i)) {
+                int appointmentId = items.get(i).getKey();
+                afterTransition(appointmentId, items.get(i).getValue(), rows.get(appointmentId).version + 1);
+                if (items.get(i).getValue() == AppointmentStatus.CANCELLED) {
+                    REALLOCATOR.submit(appointmentId);
+                }
+            }
+        }
+        return new BatchResult<>(results, true, succeeded);
+    }
+}
+
+// Status, version and doctor of the given appointments, locked until the transaction ends (missing IDs are absent)
+private static Map<Integer, LockedRow> lockRows(Connection conn, Collection<Integer> appointmentIds) throws SQLException {
+    String sql = "SELECT appointment_id, status, version, doctor_id FROM appointments " +
+                 "WHERE appointment_id IN (" + inListPlaceholders(appointmentIds.size()) + ") FOR UPDATE";
+    Map<Integer, LockedRow> rows = new HashMap<>();
+    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        bindInList(pstmt, 1, appointmentIds);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                int appointmentId = rs.getInt("appointment_id");
+                rows.put(appointmentId, new LockedRow(readStatus(rs, appointmentId), rs.getInt("version"),
+                                                      rs.getInt("doctor_id")));
+            }
+        }
+    }
+    return rows;
+}
+
+// Items whose batch count was SUCCESS_NO_INFO: updated if the locked row now has the target status
+// at the next version. Marks them in results; returns how many were updated.
+private static int confirmUpdated(Connection conn, List<Map.Entry<Integer, AppointmentStatus>> items,
+                                  Map<Integer, LockedRow> rows, List<Integer> indexes, List<Boolean> results)
+        throws SQLException {
+    if (indexes.isEmpty()) {
+        return 0;
+    }
+    List<Integer> appointmentIds = new ArrayList<>(indexes.size());
+    for (int index : indexes) {
+        appointmentIds.add(items.get(index).getKey());
+    }
+    Map<Integer, LockedRow> now = lockRows(conn, appointmentIds);
+    int updated = 0;
+    for (int index : indexes) {
+        int appointmentId = items.get(index).getKey();
+        LockedRow after = now.get(appointmentId);
+        if (after != null && after.status == items.get(index).getValue()
+                && after.version == rows.get(appointmentId).version + 1) {
+            results.set(index, Boolean.TRUE);
+            updated++;
+        }
+    }
+    return updated;
+}
+
+private static final class LockedRow {
+    final AppointmentStatus status; // null if unreadable
+    final int version;
+    final int doctorId;
+
+    LockedRow(AppointmentStatus status, int version, int doctorId) {
+        this.status = status;
+        this.version = version;
+        this.doctorId = doctorId;
+    }
+}
+
+private static Map<AppointmentStatus, String> buildTransitionSql() {
+    Map<AppointmentStatus, String> sqlByTarget = new EnumMap<>(AppointmentStatus.class);
+    for (AppointmentStatus target : AppointmentStatus.values()) {
+        int sources = AppointmentStatus.predecessorsOf(target).size();
+        if (sources > 0) {
+            sqlByTarget.put(target, "UPDATE appointments SET status = ?, version = version + 1 " +
+                                    "WHERE appointment_id = ? AND status IN (" +
+                                    String.join(", ", Collections.nCopies(sources, "?")) + ")");
+        }
+    }
+    return sqlByTarget;
 }
 
 // Inside DBManager.java
@@ -163,83 +785,75 @@ public static boolean updateAppointmentStatus(int appointmentId, String newStatu
 // NOTE: You'll need to create a simple Patient class later to hold patient name/details.
 // For now, we'll return a String array or list for simplicity.
 
+/**
+ * Counts today's appointments for a doctor, grouped by status (from the in-memory day schedule).
+ * @param doctorId The ID of the doctor.
+ * @return A count for every status (0 where there are none); all zeros on error.
+ */
+private static Map<AppointmentStatus, Integer> countTodaysAppointmentsByStatus(int doctorId) {
+    DBMetrics.Timer timer = DBMetrics.start("countTodaysAppointmentsByStatus");
+    try (timer) {
+        DayScheduleStore.DaySchedule day = todaysSchedule(doctorId);
+        if (day != null) {
+            return day.counts();
+        }
+        Map<AppointmentStatus, Integer> counts = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            counts.put(status, 0);
+        }
+        return counts;
+    }
+}
+
 /**
  * Counts the total number of appointments for a doctor on the current date, optionally filtered by status.
  * @param doctorId The ID of the doctor.
- * @param status The status to filter by ("booked", "completed", or null for all).
+ * @param status The status to filter by (BOOKED, COMPLETED, ..., or null for all).
  * @return The count of matching appointments.
  */
-public static int countAppointmentsByStatus(int doctorId, String status) {
-    String today = java.time.LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-    String sql = "SELECT COUNT(*) FROM appointments WHERE doctor_id = ? AND appointment_date = ?";
-    
-    if (status != null && !status.isEmpty()) {
-        sql += " AND status = ?";
-    }
-    
-    int count = 0;
-    try (Connection conn = getConnection(); 
-         PreparedStatement pstmt = conn.prepareStatement(sql)) {
-        
-        pstmt.setInt(1, doctorId);
-        pstmt.setString(2, today);
-        
-        if (status != null && !status.isEmpty()) {
-            pstmt.setString(3, status);
+private static int countAppointmentsByStatus(int doctorId, AppointmentStatus status) {
+    DBMetrics.Timer timer = DBMetrics.start("countAppointmentsByStatus");
+    try (timer) {
+        Map<AppointmentStatus, Integer> counts = countTodaysAppointmentsByStatus(doctorId);
+        if (status != null) {
+            return counts.get(status);
         }
-        
-        try (ResultSet rs = pstmt.executeQuery()) {
-            if (rs.next()) {
-                count = rs.getInt(1);
-            }
+        int total = 0;
+        for (int count : counts.values()) {
+            total += count;
         }
-    } catch (SQLException e) {
-        System.err.println("Error counting appointments: " + e.getMessage());
+        return total;
     }
-    return count;
 }
 
+/**
+ * Today's per-status counts and the next booked appointment for a doctor, from the in-memory
+ * day schedule.
+ * @param doctorId The ID of the doctor.
+ * @return The summary (zero counts and no next appointment on error).
+ */
+private static DoctorDaySummary getDoctorDaySummary(int doctorId) {
+    DBMetrics.Timer timer = DBMetrics.start("getDoctorDaySummary");
+    try (timer) {
+        DayScheduleStore.DaySchedule day = todaysSchedule(doctorId);
+        if (day == null) {
+            return new DoctorDaySummary(doctorId, LocalDate.now(), new EnumMap<>(AppointmentStatus.class), null);
+        }
+        return new DoctorDaySummary(doctorId, LocalDate.now(), day.counts(), day.first(AppointmentStatus.BOOKED));
+    }
+}
 
 /**
  * Finds the soonest (next) scheduled appointment for a doctor today.
  * @param doctorId The ID of the doctor.
  * @return An Appointment object or null if none are found.
  */
-public static Appointment getNextAppointment(int doctorId) {
-    String today = java.time.LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-    
-    // Order by time to find the next one, and limit to 1 result.
-    String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status " +
-                 "FROM appointments WHERE doctor_id = ? AND appointment_date = ? AND status = 'booked' " +
-                 "ORDER BY appointment_time ASC LIMIT 1"; 
-    
-    Appointment nextApp = null;
-    
-    try (Connection conn = getConnection(); 
-         PreparedStatement pstmt = conn.prepareStatement(sql)) {
-        
-        pstmt.setInt(1, doctorId);
-        pstmt.setString(2, today);
-
-        try (ResultSet rs = pstmt.executeQuery()) {
-            if (rs.next()) {
-                String date = rs.getString("appointment_date");
-                String time = rs.getString("appointment_time");
-                String fullDateTime = date + " " + time;
-                
-                nextApp = new Appointment(
-                    rs.getInt("appointment_id"),
-                    rs.getInt("patient_id"), 
-                    rs.getInt("doctor_id"), 
-                    fullDateTime,
-                    rs.getString("status")
-                );
-            }
-        }
-    } catch (SQLException e) {
-        System.err.println("Error fetching next appointment: " + e.getMessage());
+private static Appointment getNextAppointment(int doctorId) {
+    DBMetrics.Timer timer = DBMetrics.start("getNextAppointment");
+    try (timer) {
+        DayScheduleStore.DaySchedule day = todaysSchedule(doctorId);
+        return day != null ? day.first(AppointmentStatus.BOOKED) : null;
     }
-    return nextApp;
 }
 
 // ... (Rest of DBManager.java) ...
@@ -248,12 +862,35 @@ public static Appointment getNextAppointment(int doctorId) {
     // DSA: Hash Table for Doctor Lookup (Searching)
     // ----------------------------------------------------------------------
     public static Doctor getDoctorById(int doctorId) { 
-        if (DOCTORS_CACHE.containsKey(doctorId)) {
-            return DOCTORS_CACHE.get(doctorId);
+        DBMetrics.Timer timer = DBMetrics.start("getDoctorById");
+        try (timer) {
+            // 1. In-memory directory: rendering a list of appointments never issues one query per row
+            DoctorDirectory directory = getDoctorDirectory();
+            Doctor doctor = directory.find(doctorId);
+            if (doctor != null) {
+                return doctor;
+            }
+
+            // 2. Not in the snapshot (e.g. added after it was loaded): concurrent misses share a single SELECT
+            try {
+                doctor = DOCTORS_CACHE.get(doctorId, DBManager::loadDoctor);
+            } catch (SQLException e) {
+                LOG.error("Error fetching doctor by ID: " + e.getMessage());
+                return null;
+            }
+            if (doctor != null) {
+                synchronized (DIRECTORY_LOCK) {
+                    if (doctorDirectory != null) {
+                        doctorDirectory = doctorDirectory.withDoctor(doctor);
+                    }
+                }
+            }
+            return doctor;
         }
+    }
 
+    private static Doctor loadDoctor(int doctorId) throws SQLException {
         String sql = "SELECT doctor_id, name, specialization, contact FROM doctors WHERE doctor_id = ?";
-        Doctor doctor = null;
 
         try (Connection conn = getConnection(); 
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -261,31 +898,122 @@ public static Appointment getNextAppointment(int doctorId) {
             pstmt.setInt(1, doctorId); 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    doctor = new Doctor(
+                    return new Doctor(
                         rs.getInt("doctor_id"),
                         rs.getString("name"),
                         rs.getString("specialization"),
                         rs.getString("contact")
                     );
-                    DOCTORS_CACHE.put(doctorId, doctor);
                 }
             }
+        }
+        return null;
+    }
+
+    /**
+     * Re-reads one doctor into the cache and directory (or drops it if the row was deleted), for a change
+     * that must show before the directory expires (-Ddoctor.cache.ttlMs). If the query fails the directory keeps
+     * its current entry; only a successful query without a row removes the doctor.
+     * @param doctorId The ID of the changed doctor.
+     */
+    public static void refreshDoctor(int doctorId) {
+        DOCTORS_CACHE.invalidate(doctorId);
+        Doctor fresh;
+        try {
+            fresh = loadDoctor(doctorId);
         } catch (SQLException e) {
-            System.err.println("Error fetching doctor by ID: " + e.getMessage());
+            LOG.error("Error refreshing doctor " + doctorId + " (keeping the last loaded entry): " + e.getMessage());
+            return;
+        }
+        if (fresh != null) {
+            DOCTORS_CACHE.put(fresh);
         }
-        return doctor;
+        synchronized (DIRECTORY_LOCK) {
+            if (doctorDirectory != null) {
+                doctorDirectory = (fresh != null) ? doctorDirectory.withDoctor(fresh)
+                                                  : doctorDirectory.withoutDoctor(doctorId);
+            }
+        }
+    }
+
+    /**
+     * Hit ratio, load times and size of the doctor cache, for monitoring.
+     */
+    public static DoctorCache.Stats getDoctorCacheStats() {
+        return DOCTORS_CACHE.getStats();
     }
     
     // ----------------------------------------------------------------------
     // DSA: Sorting Algorithm (Custom Comparator)
     // ----------------------------------------------------------------------
     public static List<Doctor> getAllDoctorsSorted() {
+        DBMetrics.Timer timer = DBMetrics.start("getAllDoctorsSorted");
+        try (timer) {
+            // Served from the pre-sorted in-memory snapshot; the table is only scanned on first use or refresh
+            return getDoctorDirectory().getSorted();
+        }
+    }
+
+    /**
+     * Loads the doctor directory now (e.g. at application startup) so the first screen does not pay for it.
+     */
+    public static void preloadDoctors() {
+        getDoctorDirectory();
+    }
+
+    /**
+     * Re-reads the whole doctors table into a fresh directory snapshot and the doctor cache.
+     * If the query fails, the last loaded snapshot stays in use.
+     */
+    public static void refreshDoctorDirectory() {
+        synchronized (DIRECTORY_LOCK) {
+            loadDoctorDirectory();
+        }
+    }
+
+    // Until the first load succeeds, callers get an empty directory and at most one scan is tried per
+    // DOCTOR_DIRECTORY_RETRY_MS (getDoctorById then falls back to single-row queries). Once the snapshot
+    // has expired, one caller re-reads the table while the others keep using it; a failed re-read keeps
+    // it and is retried after DOCTOR_DIRECTORY_RETRY_MS.
+    private static DoctorDirectory getDoctorDirectory() {
+        DoctorDirectory directory = doctorDirectory;
+        if (directory != null && System.nanoTime() - directoryExpiresAtNanos < 0) {
+            return directory;
+        }
+        if (directory != null && !DIRECTORY_RELOADING.compareAndSet(false, true)) {
+            return directory;
+        }
+        try {
+            synchronized (DIRECTORY_LOCK) {
+                DoctorDirectory current = doctorDirectory;
+                if (current != null && System.nanoTime() - directoryExpiresAtNanos < 0) {
+                    return current; // reloaded meanwhile
+                }
+                if (System.nanoTime() - directoryRetryAtNanos < 0) {
+                    return current != null ? current : DoctorDirectory.empty();
+                }
+                DoctorDirectory loaded = loadDoctorDirectory();
+                if (loaded == null) {
+                    directoryRetryAtNanos = System.nanoTime() + DOCTOR_DIRECTORY_RETRY_MS * 1_000_000L;
+                    return current != null ? current : DoctorDirectory.empty();
+                }
+                return loaded;
+            }
+        } finally {
+            if (directory != null) {
+                DIRECTORY_RELOADING.set(false);
+            }
+        }
+    }
+
+    // Caller must hold DIRECTORY_LOCK. Returns null on failure and leaves doctorDirectory as it was.
+    private static DoctorDirectory loadDoctorDirectory() {
         List<Doctor> doctors = new ArrayList<>();
         String sql = "SELECT doctor_id, name, specialization, contact FROM doctors";
 
         try (Connection conn = getConnection(); 
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             
             while (rs.next()) {
                 doctors.add(new Doctor(
@@ -296,56 +1024,1059 @@ public static Appointment getNextAppointment(int doctorId) {
                 ));
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching all doctors: " + e.getMessage());
+            LOG.error("Error fetching all doctors: " + e.getMessage());
+            return null;
         }
 
-        // DSA: Custom sorting logic
-        Collections.sort(doctors, (d1, d2) -> {
-            int specializationCompare = d1.getSpecialization().compareTo(d2.getSpecialization());
-            if (specializationCompare != 0) {
-                return specializationCompare;
-            }
-            return d1.getName().compareTo(d2.getName());
-        });
-        
-        return doctors;
+        // DSA: Sorted once here (specialization, then name) instead of on every call
+        DoctorDirectory directory = DoctorDirectory.of(doctors);
+        for (Doctor d : doctors) {
+            DOCTORS_CACHE.put(d);
+        }
+        doctorDirectory = directory;
+        directoryExpiresAtNanos = System.nanoTime() + DOCTOR_CACHE_TTL_MS * 1_000_000L;
+        return directory;
     }
     
     // ----------------------------------------------------------------------
     // DSA: Queue for Cancellations & Database Update
     // ----------------------------------------------------------------------
-    public static boolean cancelAppointment(int appointmentId) {
-        String sql = "UPDATE appointments SET status = 'cancelled' WHERE appointment_id = ? AND status = 'booked'";
-        
-        try (Connection conn = getConnection(); 
+    private static boolean cancelAppointment(int appointmentId) {
+        DBMetrics.Timer timer = DBMetrics.start("cancelAppointment");
+        try (timer) {
+            try {
+                // Only a 'booked' appointment can move to 'cancelled' (see AppointmentStatus)
+                if (transitionStatus(appointmentId, AppointmentStatus.CANCELLED)) {
+                    // The freed slot is offered to the doctor's waitlist in the background
+                    REALLOCATOR.submit(appointmentId);
+                    return true;
+                }
+                return false;
+
+            } catch (SQLException e) {
+                LOG.error("Error cancelling appointment: " + e.getMessage(), e);
+                return false;
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Principal-checked calls: the frames pass the logged-in user (AuthResult) rather than a bare ID.
+    // Each looks the token up in the session store, requires that session to be live, to be this user
+    // and to have the right role, and scopes the call to the session's own rows; a refused call
+    // returns the same value as a failed one.
+    // ----------------------------------------------------------------------
+
+    public static List<AppointmentView> getPatientAppointmentsWithDoctors(AuthResult user) {
+        AuthResult session = authorize(user, AuthResult.Role.PATIENT, "list appointments");
+        return session != null ? getPatientAppointmentsWithDoctors(session.getUserId()) : new ArrayList<>();
+    }
+
+    /** Books for the logged-in patient. */
+    public static BookingResult tryBookAppointment(AuthResult user, int doctorId, LocalDateTime dateTime) {
+        AuthResult session = authorize(user, AuthResult.Role.PATIENT, "book");
+        return session != null
+            ? tryBookAppointment(session.getUserId(), doctorId, dateTime) : BookingResult.error(NOT_AUTHORIZED);
+    }
+
+    /** Books a series for the logged-in patient. */
+    public static BatchResult<BookingResult> bookSeries(AuthResult user, int doctorId, LocalDateTime first,
+                                                        RecurrenceRule rule, boolean allOrNothing) {
+        AuthResult session = authorize(user, AuthResult.Role.PATIENT, "book a series");
+        if (session == null) {
+            return new BatchResult<>(new ArrayList<>(), false, 0);
+        }
+        return bookSeries(session.getUserId(), doctorId, first, rule, allOrNothing);
+    }
+
+    public static int joinWaitlist(AuthResult user, int doctorId, LocalDate earliest, LocalDate latest) {
+        AuthResult session = authorize(user, AuthResult.Role.PATIENT, "join a waitlist");
+        return session != null ? joinWaitlist(session.getUserId(), doctorId, earliest, latest) : -1;
+    }
+
+    /** Books several slots (see bookAppointments(List, boolean)); every request must be for the logged-in patient. */
+    public static BatchResult<BookingResult> bookAppointments(AuthResult user, List<BookingRequest> requests,
+                                                              boolean allOrNothing) {
+        AuthResult session = authorize(user, AuthResult.Role.PATIENT, "book");
+        boolean own = session != null;
+        for (int i = 0; own && i < requests.size(); i++) {
+            own = requests.get(i).getPatientId() == session.getUserId();
+        }
+        if (!own) {
+            if (session != null) {
+                LOG.warn("ACCESS: " + session + " may not book for another patient.");
+            }
+            return new BatchResult<>(new ArrayList<>(Collections.nCopies(requests.size(),
+                    BookingResult.error(NOT_AUTHORIZED))), false, 0);
+        }
+        return bookAppointments(requests, allOrNothing);
+    }
+
+    /** Cancels one of the logged-in patient's own appointments. */
+    public static boolean cancelAppointment(AuthResult user, int appointmentId) {
+        AuthResult session = authorize(user, AuthResult.Role.PATIENT, "cancel");
+        if (session == null) {
+            return false;
+        }
+        String sql = "SELECT patient_id FROM appointments WHERE appointment_id = ?";
+        try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
             pstmt.setInt(1, appointmentId);
-            
-            if (pstmt.executeUpdate() > 0) {
-                CANCELLATION_QUEUE.offer(appointmentId); 
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt("patient_id") != session.getUserId()) {
+                    LOG.warn("ACCESS: " + session + " may not cancel appointment " + appointmentId + ".");
+                    return false;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("Error cancelling appointment: " + e.getMessage());
+            return false;
+        }
+        return cancelAppointment(appointmentId);
+    }
+
+    public static List<Appointment> getDoctorsTodayAppointments(AuthResult user) {
+        AuthResult session = authorize(user, AuthResult.Role.DOCTOR, "list today's appointments");
+        return session != null ? getDoctorsTodayAppointments(session.getUserId()) : new ArrayList<>();
+    }
+
+    public static DoctorDaySummary getDoctorDaySummary(AuthResult user) {
+        AuthResult session = authorize(user, AuthResult.Role.DOCTOR, "read the day summary");
+        if (session == null) {
+            return new DoctorDaySummary(user != null ? user.getUserId() : 0, LocalDate.now(),
+                                        new EnumMap<>(AppointmentStatus.class), null);
+        }
+        return getDoctorDaySummary(session.getUserId());
+    }
+
+    /**
+     * Version-checked status change (see updateStatus(int, Appointment, AppointmentStatus)) by the
+     * appointment's doctor; the doctor is checked in the UPDATE itself, not taken from `seen`.
+     */
+    public static StatusUpdateResult updateStatus(AuthResult user, Appointment seen, AppointmentStatus newStatus) {
+        AuthResult session = authorize(user, AuthResult.Role.DOCTOR, "update a status");
+        if (session == null) {
+            return StatusUpdateResult.error(NOT_AUTHORIZED);
+        }
+        return updateStatus(session.getUserId(), seen, newStatus);
+    }
+
+    /**
+     * Status change by ID with retries (see updateStatus(int, int, AppointmentStatus, RetryPolicy)),
+     * limited to the logged-in doctor's appointments; another doctor's is NOT_FOUND.
+     */
+    public static StatusUpdateResult updateStatus(AuthResult user, int appointmentId, AppointmentStatus newStatus,
+                                                  RetryPolicy policy) {
+        AuthResult session = authorize(user, AuthResult.Role.DOCTOR, "update a status");
+        if (session == null) {
+            return StatusUpdateResult.error(NOT_AUTHORIZED);
+        }
+        return updateStatus(session.getUserId(), appointmentId, newStatus, policy);
+    }
+
+    /**
+     * Batch status change (see updateStatuses(int, Map, boolean)) on the logged-in doctor's own
+     * appointments, on any day; another doctor's appointment is refused (false).
+     */
+    public static BatchResult<Boolean> updateStatuses(AuthResult user, Map<Integer, AppointmentStatus> updates,
+                                                      boolean allOrNothing) {
+        AuthResult session = authorize(user, AuthResult.Role.DOCTOR, "update statuses");
+        if (session == null) {
+            return new BatchResult<>(new ArrayList<>(Collections.nCopies(updates.size(), Boolean.FALSE)), false, 0);
+        }
+        return updateStatuses(session.getUserId(), updates, allOrNothing);
+    }
+
+    /** Change-log entries (see fetchChangesSince) of the logged-in doctor's, or patient's, appointments. */
+    public static List<AppointmentChange> fetchChangesSince(AuthResult user, long cursor, int limit) {
+        AuthResult session = AuthService.verify(user);
+        if (session == null) {
+            LOG.warn("ACCESS: " + (user != null ? user : "anonymous") + " may not read appointment changes.");
+            return new ArrayList<>();
+        }
+        return session.getRole() == AuthResult.Role.DOCTOR
+            ? fetchDoctorChangesSince(session.getUserId(), cursor, limit)
+            : fetchPatientChangesSince(session.getUserId(), cursor, limit);
+    }
+
+    /** Replaces the logged-in doctor's weekly template (see saveWeeklySchedule(int, Map)). */
+    public static boolean saveWeeklySchedule(AuthResult user, Map<DayOfWeek, List<DoctorSchedule.Shift>> weekly) {
+        AuthResult session = authorize(user, AuthResult.Role.DOCTOR, "change a schedule");
+        return session != null && saveWeeklySchedule(session.getUserId(), weekly);
+    }
+
+    /** Marks the logged-in doctor unavailable (see addScheduleException(int, LocalDate, ...)). */
+    public static boolean addScheduleException(AuthResult user, LocalDate date, LocalTime start, LocalTime end,
+                                               String reason) {
+        AuthResult session = authorize(user, AuthResult.Role.DOCTOR, "change a schedule");
+        return session != null && addScheduleException(session.getUserId(), date, start, end, reason);
+    }
+
+    // The stored session behind user's token if it is live, is this user and has the role; logs and returns null otherwise
+    private static AuthResult authorize(AuthResult user, AuthResult.Role role, String action) {
+        AuthResult session = AuthService.verify(user);
+        if (session == null || session.getRole() != role) {
+            LOG.warn("ACCESS: " + (user != null ? user : "anonymous") + " may not " + action + ".");
+            return null;
+        }
+        return session;
+    }
+
+    // ----------------------------------------------------------------------
+    // Change events
+    // ----------------------------------------------------------------------
+
+    /**
+     * Registers a listener for committed bookings and status changes, from this process and (via the
+     * change poller) from other instances. The listener runs on a background thread.
+     * @return A handle whose close() unsubscribes; close it when the window is disposed.
+     */
+    public static AppointmentEventBus.Subscription subscribeToChanges(Consumer<AppointmentEvent> listener) {
+        return EVENTS.subscribe(listener);
+    }
+
+    /**
+     * The newest entry of the appointment_changes log. A client that loads a snapshot reads this
+     * first and then only asks for changes after it.
+     * @return The change ID, 0 if the log is empty, or -1 on error.
+     */
+    public static long getLatestChangeId() {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(change_id), 0) FROM appointment_changes")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            LOG.error("Error reading latest change ID: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Incremental sync: log entries after the cursor, oldest first. Apply them to a cached list and
+     * keep the last change ID as the new cursor; a refresh then costs O(changes), not O(rows).
+     * The same appointment may appear several times (once per change); the entry with the highest
+     * version is its current state.
+     * @param cursor The last change ID already applied (see getLatestChangeId()).
+     * @param limit Maximum number of entries; ask again while a full page comes back.
+     * @return The entries (empty on error).
+     */
+    private static List<AppointmentChange> fetchChangesSince(long cursor, int limit) {
+        return fetchChanges("WHERE change_id > ?", -1, cursor, limit);
+    }
+
+    /** As fetchChangesSince(), limited to one doctor's appointments (served by idx_changes_doctor). */
+    private static List<AppointmentChange> fetchDoctorChangesSince(int doctorId, long cursor, int limit) {
+        return fetchChanges("WHERE doctor_id = ? AND change_id > ?", doctorId, cursor, limit);
+    }
+
+    /** As fetchChangesSince(), limited to one patient's appointments (served by idx_changes_patient). */
+    private static List<AppointmentChange> fetchPatientChangesSince(int patientId, long cursor, int limit) {
+        return fetchChanges("WHERE patient_id = ? AND change_id > ?", patientId, cursor, limit);
+    }
+
+    private static List<AppointmentChange> fetchChanges(String where, int ownerId, long cursor, int limit) {
+        try {
+            return readChanges(where, ownerId, cursor, limit);
+        } catch (SQLException e) {
+            LOG.error("Error fetching appointment changes: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // ownerId < 0: the WHERE clause has no doctor/patient parameter
+    private static List<AppointmentChange> readChanges(String where, int ownerId, long cursor, int limit) throws SQLException {
+        String sql = CHANGE_COLUMNS + where + " ORDER BY change_id LIMIT ?";
+        List<AppointmentChange> changes = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (ownerId >= 0) {
+                pstmt.setInt(i++, ownerId);
+            }
+            pstmt.setLong(i++, cursor);
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // Kept even if the row is unreadable (null), so the change ID still advances the cursor
+                    changes.add(new AppointmentChange(rs.getLong("change_id"), mapAppointment(rs)));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Appends the current state of the given appointments to appointment_changes, on the caller's
+     * connection, so the log entry commits or rolls back together with the change itself.
+     */
+    private static void logChanges(Connection conn, Collection<Integer> appointmentIds) throws SQLException {
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+        String sql = LOG_CHANGES_SQL + inListPlaceholders(appointmentIds.size()) + ") ORDER BY appointment_id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindInList(pstmt, 1, appointmentIds);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Placeholders for an IN (...) list of `size` values, rounded up to the next of IN_LIST_SIZES
+    // (then to a multiple of the largest), so each variable-length statement has only a few SQL
+    // variants and stays in the StatementCache instead of preparing (and evicting) one per length
+    private static String inListPlaceholders(int size) {
+        return String.join(", ", Collections.nCopies(paddedInListSize(size), "?"));
+    }
+
+    private static int paddedInListSize(int size) {
+        for (int padded : IN_LIST_SIZES) {
+            if (size <= padded) {
+                return padded;
+            }
+        }
+        int largest = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+        return (size + largest - 1) / largest * largest;
+    }
+
+    // Binds the values from parameterIndex on, repeating the last one to fill the padding (a repeated
+    // value does not change an IN match); returns the next parameter index
+    private static int bindInList(PreparedStatement pstmt, int parameterIndex, Collection<?> values) throws SQLException {
+        Object last = null;
+        for (Object value : values) {
+            pstmt.setObject(parameterIndex++, value);
+            last = value;
+        }
+        for (int n = values.size(); n < paddedInListSize(values.size()); n++) {
+            pstmt.setObject(parameterIndex++, last);
+        }
+        return parameterIndex;
+    }
+
+    // AppointmentChangePoller.Source over the appointment_changes log
+    private static final class ChangeLogSource implements AppointmentChangePoller.Source {
+        @Override
+        public long latestChangeId() throws SQLException {
+            long latest = getLatestChangeId();
+            if (latest < 0) {
+                throw new SQLException("Could not read the change log position.");
+            }
+            return latest;
+        }
+
+        @Override
+        public List<AppointmentChange> fetchSince(long cursor, int limit) throws SQLException {
+            return readChanges("WHERE change_id > ?", -1, cursor, limit);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Waitlist & Freed-slot Reallocation
+    // ----------------------------------------------------------------------
+
+    /**
+     * Puts a patient on a doctor's waitlist. When one of the doctor's slots in [earliest, latest] is
+     * cancelled, the longest-waiting matching patient is booked into it automatically.
+     * @param earliest First acceptable date, or null for any.
+     * @param latest Last acceptable date, or null for any.
+     * @return The new waitlist entry ID, or -1 on error.
+     */
+    private static int joinWaitlist(int patientId, int doctorId, LocalDate earliest, LocalDate latest) {
+        String sql = "INSERT INTO waitlist (doctor_id, patient_id, earliest_date, latest_date) VALUES (?, ?, ?, ?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, doctorId);
+            pstmt.setInt(2, patientId);
+            pstmt.setObject(3, earliest);
+            pstmt.setObject(4, latest);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : -1;
+            }
+        } catch (SQLException e) {
+            LOG.error("Error joining waitlist: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** Queue depth, throughput and cancel-to-rebook latency of the freed-slot pipeline. */
+    public static SlotReallocator.Stats getReallocationStats() {
+        return REALLOCATOR.getStats();
+    }
+
+    /**
+     * SlotReallocator.Handler: books the cancelled appointment's slot for the first waiting patient
+     * (by request time) whose date window covers it. Runs on the reallocator thread.
+     */
+    private static boolean reallocateFreedSlot(SlotReallocator.FreedSlot freed) throws SQLException {
+        int doctorId;
+        LocalDateTime start;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT doctor_id, appointment_date, appointment_time FROM appointments " +
+                 "WHERE appointment_id = ? AND status = 'cancelled'")) {
+            pstmt.setInt(1, freed.getAppointmentId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                doctorId = rs.getInt("doctor_id");
+                LocalDate date = rs.getObject("appointment_date", LocalDate.class);
+                LocalTime time = rs.getObject("appointment_time", LocalTime.class);
+                if (date == null || time == null) {
+                    return false;
+                }
+                start = date.atTime(time);
+            }
+        }
+        if (start.isBefore(LocalDateTime.now())) {
+            return false; // nobody can use a slot that has already started
+        }
+        expireWaitlist(doctorId, LocalDate.now());
+
+        // Served by idx_waitlist_doctor_status_requested; oldest request first
+        String candidatesSql = "SELECT waitlist_id, patient_id FROM waitlist " +
+                               "WHERE doctor_id = ? AND status = 'waiting' " +
+                               "AND (earliest_date IS NULL OR earliest_date <= ?) " +
+                               "AND (latest_date IS NULL OR latest_date >= ?) " +
+                               "ORDER BY requested_at, waitlist_id LIMIT " + WAITLIST_CANDIDATES;
+        List<int[]> candidates = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(candidatesSql)) {
+            pstmt.setInt(1, doctorId);
+            pstmt.setObject(2, start.toLocalDate());
+            pstmt.setObject(3, start.toLocalDate());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    candidates.add(new int[] {rs.getInt("waitlist_id"), rs.getInt("patient_id")});
+                }
+            }
+        }
+
+        for (int[] candidate : candidates) {
+            BookingResult result = bookFromWaitlist(candidate[0], candidate[1], doctorId, start);
+            if (result.isBooked()) {
                 return true;
             }
+            if (result.getOutcome() == BookingResult.Outcome.CONFLICT) {
+                return false; // someone else already took the slot
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Books the slot for a waitlist entry: the appointment INSERT and the entry's move from 'waiting' to
+     * 'booked' commit together, so a failure in between never leaves a patient marked booked without
+     * an appointment, and another instance cannot book the same entry twice (its UPDATE matches no row).
+     * @return BOOKED, CONFLICT if the slot is taken, or ERROR (including an entry no longer waiting).
+     */
+    private static BookingResult bookFromWaitlist(int waitlistId, int patientId, int doctorId, LocalDateTime start) {
+        LocalDate date = start.toLocalDate();
+        int startMinute = start.getHour() * 60 + start.getMinute();
+        if (!schedulesLoaded()) {
+            return BookingResult.error("Could not check the doctor's schedule.");
+        }
+        BookingEngine.Reservation reservation;
+        try {
+            reservation = BOOKING_ENGINE.reserve(doctorId, date, startMinute);
+        } catch (SQLException e) {
+            LOG.error("Error checking doctor schedule: " + e.getMessage());
+            return BookingResult.error("Could not check the doctor's schedule.");
+        }
+        if (!reservation.isGranted()) {
+            return BookingResult.conflict(Collections.emptyList());
+        }
+
+        Appointment app;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                app = insertAppointment(conn, patientId, doctorId, date, LocalTime.of(startMinute / 60, startMinute % 60));
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE waitlist SET status = 'booked', appointment_id = ? " +
+                        "WHERE waitlist_id = ? AND status = 'waiting'")) {
+                    pstmt.setInt(1, app.getId());
+                    pstmt.setInt(2, waitlistId);
+                    if (pstmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        reservation.release();
+                        return BookingResult.error("Waitlist entry " + waitlistId + " is no longer waiting.");
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            reservation.release();
+            if (e.getErrorCode() != ER_DUP_ENTRY) {
+                LOG.error("Error booking waitlist entry " + waitlistId + ": " + e.getMessage());
+                return BookingResult.error("Failed to book appointment: " + e.getMessage());
+            }
+            BOOKING_ENGINE.invalidate(doctorId, date);
+            AVAILABILITY.invalidate(doctorId);
+            return BookingResult.conflict(Collections.emptyList());
+        }
+        bookingConfirmed(reservation, app);
+        return BookingResult.booked(app);
+    }
+
+    // Waiting entries of the doctor whose date window has passed can never be served: take them out of the scan
+    private static void expireWaitlist(int doctorId, LocalDate today) throws SQLException {
+        String sql = "UPDATE waitlist SET status = 'expired' " +
+                     "WHERE doctor_id = ? AND status = 'waiting' AND latest_date < ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, doctorId);
+            pstmt.setObject(2, today);
+            int expired = pstmt.executeUpdate();
+            if (expired > 0) {
+                LOG.info("Expired " + expired + " waitlist entries of Dr. " + doctorId + " past their last date.");
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Doctor Schedules (weekly templates + dated closures)
+    // ----------------------------------------------------------------------
+
+    /** Default slot length, in minutes (-Dbooking.durationMinutes); doctors' templates may differ. */
+    public static int getBookingDurationMinutes() {
+        return BOOKING_DURATION_MINUTES;
+    }
+
+    /**
+     * The doctor's working-hours template, or the clinic default if none is stored (or the templates
+     * could not be loaded yet; bookings are refused until they are, see schedulesLoaded).
+     */
+    public static DoctorSchedule getDoctorSchedule(int doctorId) {
+        Map<Integer, DoctorSchedule> schedules = doctorSchedules;
+        if (schedules == null) {
+            schedules = loadSchedulesOnFirstUse();
+        }
+        return schedules.getOrDefault(doctorId, DEFAULT_SCHEDULE);
+    }
+
+    // Concurrent first callers share one load; until one succeeds, at most one is tried per
+    // DOCTOR_SCHEDULE_RETRY_MS and every doctor reads as clinic hours
+    private static Map<Integer, DoctorSchedule> loadSchedulesOnFirstUse() {
+        synchronized (SCHEDULE_LOCK) {
+            Map<Integer, DoctorSchedule> schedules = doctorSchedules;
+            if (schedules != null) {
+                return schedules;
+            }
+            if (System.nanoTime() - scheduleRetryAtNanos < 0) {
+                return Collections.emptyMap();
+            }
+            schedules = loadDoctorSchedules();
+            if (schedules == null) {
+                scheduleLoadFailed = true;
+                scheduleRetryAtNanos = System.nanoTime() + DOCTOR_SCHEDULE_RETRY_MS * 1_000_000L;
+                return Collections.emptyMap();
+            }
+            if (scheduleLoadFailed) {
+                // Days built from clinic hours meanwhile do not know the doctors' real hours and closures
+                scheduleLoadFailed = false;
+                AVAILABILITY.invalidateAll();
+                BOOKING_ENGINE.invalidateAll();
+            }
+            return schedules;
+        }
+    }
+
+    // False while the templates have never loaded: a booking could land on a closed day
+    private static boolean schedulesLoaded() {
+        getDoctorSchedule(0);
+        return doctorSchedules != null;
+    }
+
+    /**
+     * Replaces the doctor's weekly template (one transaction) and rebuilds availability.
+     * @return true if saved.
+     */
+    private static boolean saveWeeklySchedule(int doctorId, Map<DayOfWeek, List<DoctorSchedule.Shift>> weekly) {
+        String insert = "INSERT INTO doctor_schedules (doctor_id, day_of_week, start_time, end_time, slot_minutes) " +
+                        "VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM doctor_schedules WHERE doctor_id = ?");
+                 PreparedStatement pstmt = conn.prepareStatement(insert)) {
+                delete.setInt(1, doctorId);
+                delete.executeUpdate();
+                for (Map.Entry<DayOfWeek, List<DoctorSchedule.Shift>> e : weekly.entrySet()) {
+                    for (DoctorSchedule.Shift shift : e.getValue()) {
+                        pstmt.setInt(1, doctorId);
+                        pstmt.setInt(2, e.getKey().getValue());
+                        pstmt.setObject(3, LocalTime.of(shift.getStartMinute() / 60, shift.getStartMinute() % 60));
+                        pstmt.setObject(4, shift.getEndMinute() == 24 * 60 ? LocalTime.MAX.withNano(0)
+                                           : LocalTime.of(shift.getEndMinute() / 60, shift.getEndMinute() % 60));
+                        pstmt.setInt(5, shift.getSlotMinutes());
+                        pstmt.addBatch();
+                    }
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOG.error("Error saving schedule for doctor " + doctorId + ": " + e.getMessage());
             return false;
+        }
+        refreshSchedules();
+        return true;
+    }
 
+    /**
+     * Marks the doctor unavailable on a date; null start/end means the whole day (holiday, leave).
+     * @return true if saved.
+     */
+    private static boolean addScheduleException(int doctorId, LocalDate date, LocalTime start, LocalTime end, String reason) {
+        String sql = "INSERT INTO doctor_schedule_exceptions (doctor_id, exception_date, start_time, end_time, reason) " +
+                     "VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, doctorId);
+            pstmt.setObject(2, date);
+            pstmt.setObject(3, start);
+            pstmt.setObject(4, end);
+            pstmt.setString(5, reason);
+            pstmt.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Error cancelling appointment: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error saving schedule exception for doctor " + doctorId + ": " + e.getMessage());
             return false;
         }
+        refreshSchedules();
+        return true;
+    }
+
+    /**
+     * Re-reads all templates and drops the precomputed availability, which is rebuilt on next use.
+     * If the query fails, the last loaded templates stay in use.
+     */
+    public static void refreshSchedules() {
+        synchronized (SCHEDULE_LOCK) {
+            loadDoctorSchedules();
+        }
+        AVAILABILITY.invalidateAll();
+        BOOKING_ENGINE.invalidateAll();
+    }
+
+    /**
+     * Precomputes availability for every doctor over the next days (-Davailability.horizonDays),
+     * e.g. at startup, so the first slot search is served from memory.
+     */
+    public static void preloadAvailability() {
+        getDoctorSchedule(0); // templates first, so the calendar build does not load them under a lock
+        List<Integer> doctorIds = new ArrayList<>();
+        for (Doctor d : getAllDoctorsSorted()) {
+            doctorIds.add(d.getId());
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            AVAILABILITY.ensureLoaded(doctorIds, today, today.plusDays(AVAILABILITY_HORIZON_DAYS - 1));
+        } catch (SQLException e) {
+            LOG.error("Error preloading availability: " + e.getMessage());
+        }
+    }
+
+    // Two queries (templates, upcoming exceptions). Caller must hold SCHEDULE_LOCK. Returns null on
+    // failure and leaves doctorSchedules as it was: half the rows would drop hours and closures.
+    private static Map<Integer, DoctorSchedule> loadDoctorSchedules() {
+        Map<Integer, Map<DayOfWeek, List<DoctorSchedule.Shift>>> weekly = new HashMap<>();
+        Map<Integer, Map<LocalDate, List<DoctorSchedule.Closure>>> closures = new HashMap<>();
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT doctor_id, day_of_week, start_time, end_time, slot_minutes FROM doctor_schedules")) {
+                while (rs.next()) {
+                    weekly.computeIfAbsent(rs.getInt("doctor_id"), id -> new EnumMap<>(DayOfWeek.class))
+                          .computeIfAbsent(DayOfWeek.of(rs.getInt("day_of_week")), d -> new ArrayList<>())
+                          .add(new DoctorSchedule.Shift(minuteOfDay(rs.getObject("start_time", LocalTime.class), 0),
+                                                        minuteOfDay(rs.getObject("end_time", LocalTime.class), 0),
+                                                        rs.getInt("slot_minutes")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT doctor_id, exception_date, start_time, end_time FROM doctor_schedule_exceptions " +
+                    "WHERE exception_date >= CURDATE()")) {
+                while (rs.next()) {
+                    closures.computeIfAbsent(rs.getInt("doctor_id"), id -> new HashMap<>())
+                            .computeIfAbsent(rs.getObject("exception_date", LocalDate.class), d -> new ArrayList<>())
+                            .add(new DoctorSchedule.Closure(minuteOfDay(rs.getObject("start_time", LocalTime.class), 0),
+                                                            minuteOfDay(rs.getObject("end_time", LocalTime.class), 24 * 60)));
+                }
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            LOG.error("Error loading doctor schedules (keeping the last loaded ones): " + e.getMessage());
+            return null;
+        }
+
+        Map<Integer, DoctorSchedule> schedules = new HashMap<>();
+        Set<Integer> doctorIds = new HashSet<>(weekly.keySet());
+        doctorIds.addAll(closures.keySet());
+        for (int doctorId : doctorIds) {
+            // A doctor with only exceptions keeps the default weekly hours
+            DoctorSchedule base = DEFAULT_SCHEDULE;
+            Map<DayOfWeek, List<DoctorSchedule.Shift>> shifts = weekly.get(doctorId);
+            if (shifts == null) {
+                shifts = new EnumMap<>(DayOfWeek.class);
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    shifts.put(day, base.getShifts(day));
+                }
+            }
+            schedules.put(doctorId, new DoctorSchedule(shifts, closures.getOrDefault(doctorId, Collections.emptyMap())));
+        }
+        doctorSchedules = schedules;
+        return schedules;
+    }
+
+    // Minutes since midnight; TIME '23:59:59' (end of day) counts as 24:00
+    private static int minuteOfDay(LocalTime time, int ifNull) {
+        if (time == null) {
+            return ifNull;
+        }
+        return time.getHour() == 23 && time.getMinute() == 59 ? 24 * 60 : time.getHour() * 60 + time.getMinute();
+    }
+
+    // AvailabilityCalendar.BookingLoader: active appointments of several doctors over a date range
+    private static List<Appointment> loadActiveAppointments(Collection<Integer> doctorIds, LocalDate from, LocalDate to)
+            throws SQLException {
+        String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status, version " +
+                     "FROM appointments WHERE doctor_id IN (" + inListPlaceholders(doctorIds.size()) + ") " +
+                     "AND appointment_date BETWEEN ? AND ? AND status IN ('booked', 'in progress')";
+        List<Appointment> active = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = bindInList(pstmt, 1, doctorIds);
+            pstmt.setObject(i++, from);
+            pstmt.setObject(i, to);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Appointment app = mapAppointment(rs);
+                    if (app != null) {
+                        active.add(app);
+                    }
+                }
+            }
+        }
+        return active;
+    }
+
+    // ----------------------------------------------------------------------
+    // Free-slot Search (earliest open slots across doctors of one specialization)
+    // ----------------------------------------------------------------------
+
+    /**
+     * Finds the earliest open slots, across all doctors of a specialization, between two dates.
+     * Served from the availability calendar (days not yet loaded cost one query for all the doctors);
+     * the merge runs in memory (see AvailabilitySearch). Slots that have already started are skipped.
+     * @param specialization Matched against Doctor.getSpecialization().
+     * @param from First day to search.
+     * @param to Last day to search (inclusive).
+     * @param slotMinutes Minimum free length; shorter template slots are combined when back to back.
+     * @param limit Maximum number of slots returned.
+     * @return Up to limit slots, earliest first (empty on error).
+     */
+    public static List<AvailabilitySearch.Slot> findAvailableSlots(String specialization, LocalDate from, LocalDate to,
+                                                                   int slotMinutes, int limit) {
+        List<Doctor> doctors = new ArrayList<>();
+        for (Doctor d : getAllDoctorsSorted()) {
+            if (d.getSpecialization().equalsIgnoreCase(specialization)) {
+                doctors.add(d);
+            }
+        }
+        if (doctors.isEmpty() || to.isBefore(from)) {
+            return new ArrayList<>();
+        }
+
+        List<Integer> doctorIds = new ArrayList<>(doctors.size());
+        for (Doctor d : doctors) {
+            doctorIds.add(d.getId());
+        }
+        try {
+            AVAILABILITY.ensureLoaded(doctorIds, from, to);
+        } catch (SQLException e) {
+            LOG.error("Error searching available slots: " + e.getMessage());
+            return new ArrayList<>();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime notBefore = from.atStartOfDay().isAfter(now) ? from.atStartOfDay() : now;
+        return new AvailabilitySearch(AVAILABILITY).earliest(doctors, to, slotMinutes, limit, notBefore);
     }
 
     // ----------------------------------------------------------------------
     // Core CRUD Operation: Book New Appointment (FIXED TRANSACTION CONTROL)
     // ----------------------------------------------------------------------
-    public static Appointment bookNewAppointment(int patientId, int doctorId, String dateTime) {
-        String date = dateTime.substring(0, 10);
-        String time = dateTime.substring(11);
+    // Not principal-checked: package-private for the benchmarks; the screens use tryBookAppointment(AuthResult, ...)
+    static Appointment bookNewAppointment(int patientId, int doctorId, LocalDateTime dateTime) {
+        return tryBookAppointment(patientId, doctorId, dateTime).getAppointment();
+    }
 
-        String sql = "INSERT INTO appointments (doctor_id, patient_id, appointment_date, appointment_time, status) " +
-                      "VALUES (?, ?, ?, ?, 'booked')"; 
-        
-        System.out.println("DEBUG: Attempting to INSERT Appointment (Transaction start):");
+    /**
+     * Books a slot after checking it against the doctor's schedule template and other appointments that day.
+     * The check and a tentative hold happen atomically in BookingEngine (no query once the day is
+     * indexed); the UNIQUE slot index then guards against bookings made by other application instances.
+     * @return BOOKED with the new appointment, CONFLICT with nearby free slots, NOT_BOOKABLE for a past
+     *         or out-of-schedule time, or ERROR.
+     */
+    private static BookingResult tryBookAppointment(int patientId, int doctorId, LocalDateTime dateTime) {
+        DBMetrics.Timer timer = DBMetrics.start("tryBookAppointment");
+        try (timer) {
+            LocalDate date = dateTime.toLocalDate();
+            int startMinute = dateTime.getHour() * 60 + dateTime.getMinute();
+            if (!dateTime.isAfter(LocalDateTime.now())) {
+                return BookingResult.notBookable(PAST_START);
+            }
+            if (!schedulesLoaded()) {
+                return BookingResult.error("Could not check the doctor's schedule.");
+            }
+
+            BookingEngine.Reservation reservation;
+            try {
+                reservation = BOOKING_ENGINE.reserve(doctorId, date, startMinute);
+            } catch (SQLException e) {
+                LOG.error("Error checking doctor schedule: " + e.getMessage());
+                return BookingResult.error("Could not check the doctor's schedule.");
+            }
+            if (!reservation.isInSchedule()) {
+                return BookingResult.notBookable(OUTSIDE_SCHEDULE);
+            }
+            if (!reservation.isGranted()) {
+                return BookingResult.conflict(nearestFreeSlots(doctorId, date, startMinute));
+            }
+
+            try {
+                Appointment app = insertAppointment(patientId, doctorId, date, LocalTime.of(startMinute / 60, startMinute % 60));
+                bookingConfirmed(reservation, app);
+                return BookingResult.booked(app);
+            } catch (SQLException e) {
+                reservation.release();
+                if (e.getErrorCode() != ER_DUP_ENTRY) {
+                    return BookingResult.error("Failed to book appointment: " + e.getMessage());
+                }
+                // Someone else (another instance) took the slot: our view of that doctor is stale
+                BOOKING_ENGINE.invalidate(doctorId, date);
+                AVAILABILITY.invalidate(doctorId);
+                return BookingResult.conflict(nearestFreeSlots(doctorId, date, startMinute));
+            }
+        }
+    }
+
+    // Up to three free template slots of that day, nearest to the requested time
+    private static List<LocalDateTime> nearestFreeSlots(int doctorId, LocalDate date, int startMinute) {
+        try {
+            return AVAILABILITY.nearestFree(doctorId, date, startMinute, 3);
+        } catch (SQLException e) {
+            LOG.error("Error loading free slots: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Books many slots at once (e.g. a front-desk import of a treatment series). Every slot is checked
+     * in memory first (BookingEngine, no query); the free ones are then written with one batched,
+     * multi-row INSERT in a single transaction, and the generated IDs are matched back in order.
+     * @param allOrNothing If true, one unavailable slot or failed row books nothing; otherwise each
+     *                     request is booked or rejected on its own.
+     * @return One BookingResult per request, in request order.
+     */
+    private static BatchResult<BookingResult> bookAppointments(List<BookingRequest> requests, boolean allOrNothing) {
+        DBMetrics.Timer timer = DBMetrics.start("bookAppointments");
+        try (timer) {
+            int n = requests.size();
+            List<BookingResult> results = new ArrayList<>(Collections.nCopies(n, (BookingResult) null));
+            List<BookingEngine.Reservation> reservations = new ArrayList<>(Collections.nCopies(n, (BookingEngine.Reservation) null));
+            List<Integer> toInsert = new ArrayList<>(n);
+            boolean schedulesKnown = schedulesLoaded();
+            LocalDateTime now = LocalDateTime.now();
+
+            // 1. Check and hold every slot (also catches two requests for the same slot within the batch)
+            for (int i = 0; i < n; i++) {
+                BookingRequest r = requests.get(i);
+                LocalDate date = r.getStart().toLocalDate();
+                int startMinute = r.getStart().getHour() * 60 + r.getStart().getMinute();
+                if (!r.getStart().isAfter(now)) {
+                    results.set(i, BookingResult.notBookable(PAST_START));
+                    continue;
+                }
+                if (!schedulesKnown) {
+                    results.set(i, BookingResult.error("Could not check the doctor's schedule."));
+                    continue;
+                }
+                try {
+                    BookingEngine.Reservation reservation = BOOKING_ENGINE.reserve(r.getDoctorId(), date, startMinute);
+                    if (!reservation.isInSchedule()) {
+                        results.set(i, BookingResult.notBookable(OUTSIDE_SCHEDULE));
+                    } else if (reservation.isGranted()) {
+                        reservations.set(i, reservation);
+                        toInsert.add(i);
+                    } else {
+                        results.set(i, BookingResult.conflict(nearestFreeSlots(r.getDoctorId(), date, startMinute)));
+                    }
+                } catch (SQLException e) {
+                    results.set(i, BookingResult.error("Could not check the doctor's schedule."));
+                }
+            }
+
+            if (allOrNothing && toInsert.size() < n) {
+                return rejectBatch(results, reservations, toInsert, "Not booked: another booking in the batch failed.");
+            }
+            if (toInsert.isEmpty()) {
+                return new BatchResult<>(results, true, 0);
+            }
+
+            // 2. One transaction, one batch
+            try {
+                List<Appointment> inserted = insertAppointments(requests, toInsert);
+                for (int k = 0; k < toInsert.size(); k++) {
+                    bookingConfirmed(reservations.get(toInsert.get(k)), inserted.get(k));
+                    results.set(toInsert.get(k), BookingResult.booked(inserted.get(k)));
+                }
+                return new BatchResult<>(results, true, inserted.size());
+            } catch (SQLException e) {
+                LOG.error("Batch booking failed (rolled back): " + e.getMessage());
+                if (allOrNothing) {
+                    for (int index : toInsert) {
+                        BookingRequest r = requests.get(index);
+                        BOOKING_ENGINE.invalidate(r.getDoctorId(), r.getStart().toLocalDate());
+                        AVAILABILITY.invalidate(r.getDoctorId());
+                    }
+                    return rejectBatch(results, reservations, toInsert, "Not booked: " + e.getMessage());
+                }
+            }
+
+            // 3. Per-item mode and the batch failed as a whole: insert the held rows one by one to find the bad ones
+            int succeeded = 0;
+            for (int index : toInsert) {
+                BookingRequest r = requests.get(index);
+                LocalDate date = r.getStart().toLocalDate();
+                int startMinute = r.getStart().getHour() * 60 + r.getStart().getMinute();
+                try {
+                    Appointment app = insertAppointment(r.getPatientId(), r.getDoctorId(), date,
+                                                        LocalTime.of(startMinute / 60, startMinute % 60));
+                    bookingConfirmed(reservations.get(index), app);
+                    results.set(index, BookingResult.booked(app));
+                    succeeded++;
+                } catch (SQLException e) {
+                    reservations.get(index).release();
+                    if (e.getErrorCode() == ER_DUP_ENTRY) {
+                        BOOKING_ENGINE.invalidate(r.getDoctorId(), date);
+                        AVAILABILITY.invalidate(r.getDoctorId());
+                        results.set(index, BookingResult.conflict(nearestFreeSlots(r.getDoctorId(), date, startMinute)));
+                    } else {
+                        results.set(index, BookingResult.error("Failed to book appointment: " + e.getMessage()));
+                    }
+                }
+            }
+            return new BatchResult<>(results, true, succeeded);
+        }
+    }
+
+    /**
+     * Books a recurring series (e.g. weekly follow-ups) for one patient with one doctor. The rule is
+     * expanded in memory; the doctor's booked intervals and availability for every date are then
+     * loaded with one query each, every visit is checked in memory, and the free ones are inserted as
+     * one batch in a single transaction (see bookAppointments).
+     * @param first Start of the first visit; later visits keep the same time of day.
+     * @param allOrNothing If true, one taken date books nothing; otherwise the free dates are booked.
+     * @return One BookingResult per visit, in date order.
+     */
+    private static BatchResult<BookingResult> bookSeries(int patientId, int doctorId, LocalDateTime first,
+                                                         RecurrenceRule rule, boolean allOrNothing) {
+        DBMetrics.Timer timer = DBMetrics.start("bookSeries");
+        try (timer) {
+            List<LocalDateTime> starts = rule.expand(first);
+            if (starts.isEmpty()) {
+                return new BatchResult<>(new ArrayList<>(), true, 0);
+            }
+
+            List<BookingRequest> requests = new ArrayList<>(starts.size());
+            List<LocalDate> dates = new ArrayList<>(starts.size());
+            for (LocalDateTime start : starts) {
+                requests.add(new BookingRequest(patientId, doctorId, start));
+                dates.add(start.toLocalDate());
+            }
+            try {
+                BOOKING_ENGINE.preload(doctorId, dates);
+                AVAILABILITY.ensureLoaded(Collections.singletonList(doctorId), dates.get(0), dates.get(dates.size() - 1));
+            } catch (SQLException e) {
+                LOG.error("Error loading schedule for series: " + e.getMessage());
+                List<BookingResult> failed = new ArrayList<>(Collections.nCopies(starts.size(),
+                        BookingResult.error("Could not check the doctor's schedule.")));
+                return new BatchResult<>(failed, false, 0);
+            }
+            return bookAppointments(requests, allOrNothing);
+        }
+    }
+
+    private static void bookingConfirmed(BookingEngine.Reservation reservation, Appointment app) {
+        reservation.confirm(app.getId());
+        AVAILABILITY.onBooked(app);
+        EVENTS.publish(AppointmentEvent.booked(app));
+    }
+
+    // All-or-nothing failure: give back every held slot and mark the not-yet-failed items as rejected
+    private static BatchResult<BookingResult> rejectBatch(List<BookingResult> results,
+                                                          List<BookingEngine.Reservation> reservations,
+                                                          List<Integer> held, String message) {
+        for (int index : held) {
+            reservations.get(index).release();
+        }
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, BookingResult.error(message));
+            }
+        }
+        return new BatchResult<>(results, false, 0);
+    }
+
+    // Multi-row INSERT (rewriteBatchedStatements) of the given requests; keys come back in batch order
+    private static List<Appointment> insertAppointments(List<BookingRequest> requests, List<Integer> indexes) throws SQLException {
+        List<Appointment> inserted = new ArrayList<>(indexes.size());
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_APPOINTMENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int index : indexes) {
+                    BookingRequest r = requests.get(index);
+                    pstmt.setInt(1, r.getDoctorId());
+                    pstmt.setInt(2, r.getPatientId());
+                    pstmt.setObject(3, r.getStart().toLocalDate());
+                    pstmt.setObject(4, r.getStart().toLocalTime().withSecond(0).withNano(0));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+
+                List<Integer> ids = new ArrayList<>(indexes.size());
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    for (int index : indexes) {
+                        if (!keys.next()) {
+                            throw new SQLException("Batch INSERT returned fewer generated keys than rows");
+                        }
+                        BookingRequest r = requests.get(index);
+                        ids.add(keys.getInt(1));
+                        inserted.add(new Appointment(keys.getInt(1), r.getPatientId(), r.getDoctorId(),
+                                                     Appointment.toEpochMinute(r.getStart().withSecond(0).withNano(0)),
+                                                     AppointmentStatus.BOOKED));
+                    }
+                }
+                logChanges(conn, ids);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return inserted;
+    }
+
+    private static Appointment insertAppointment(int patientId, int doctorId, LocalDate date, LocalTime time) throws SQLException {
+        LOG.trace(() -> "Inserting appointment: Dr. " + doctorId + ", patient " + patientId + ", " + date + " " + time);
         
         Connection conn = null;
         PreparedStatement pstmt = null;
@@ -356,44 +2087,44 @@ public static Appointment getNextAppointment(int doctorId) {
             // CRITICAL FIX 1: Ensure auto-commit is OFF to control the transaction explicitly
             conn.setAutoCommit(false); 
             
-            pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            pstmt = conn.prepareStatement(INSERT_APPOINTMENT_SQL, Statement.RETURN_GENERATED_KEYS);
             
             // BINDING ORDER MUST MATCH SQL COLUMN LIST ORDER!
             pstmt.setInt(1, doctorId); 
             pstmt.setInt(2, patientId); 
-            pstmt.setString(3, date); 
-            pstmt.setString(4, time); 
+            pstmt.setObject(3, date); 
+            pstmt.setObject(4, time); 
             
             int rowsAffected = pstmt.executeUpdate();
             
             if (rowsAffected > 0) {
                 
-                // CRITICAL FIX 2: Commit the transaction to save changes permanently
-                conn.commit(); 
-                
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         int newId = generatedKeys.getInt(1);
-                        System.out.println("DEBUG: SUCCESS! Transaction Committed. ID: " + newId);
-                        return new Appointment(newId, patientId, doctorId, dateTime, "booked");
+                        logChanges(conn, Collections.singletonList(newId));
+
+                        // CRITICAL FIX 2: Commit the transaction to save changes permanently
+                        conn.commit(); 
+                        LOG.debug(() -> "Appointment " + newId + " inserted and committed");
+                        return new Appointment(newId, patientId, doctorId, Appointment.toEpochMinute(date, time), AppointmentStatus.BOOKED);
                     }
                 }
             }
-            
-            // If execution reaches here without success, the finally block will ensure cleanup.
+            throw new SQLException("INSERT did not return a generated appointment ID");
 
         } catch (SQLException e) {
             // If anything goes wrong, try to roll back the transaction
             if (conn != null) {
                 try {
-                    System.err.println("Transaction failed. Attempting rollback.");
+                    LOG.warn("Transaction failed. Attempting rollback.");
                     conn.rollback();
                 } catch (SQLException rollbackEx) {
-                    System.err.println("Rollback failed: " + rollbackEx.getMessage());
+                    LOG.error("Rollback failed: " + rollbackEx.getMessage());
                 }
             }
-            System.err.println("DATABASE ERROR: Failed to book appointment! " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("DATABASE ERROR: Failed to book appointment! " + e.getMessage());
+            throw e;
         } finally {
             // Ensure connection and statement are closed
             try {
@@ -402,9 +2133,55 @@ public static Appointment getNextAppointment(int doctorId) {
                 // if (conn != null && !conn.getAutoCommit()) conn.setAutoCommit(true); 
                 if (conn != null) conn.close();
             } catch (SQLException closeEx) {
-                System.err.println("Error closing resources: " + closeEx.getMessage());
+                LOG.error("Error closing resources: " + closeEx.getMessage());
             }
         }
-        return null;
+    }
+
+    // The INSERT and its change-log entry on the caller's connection and transaction (no commit)
+    private static Appointment insertAppointment(Connection conn, int patientId, int doctorId, LocalDate date, LocalTime time)
+            throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_APPOINTMENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, doctorId);
+            pstmt.setInt(2, patientId);
+            pstmt.setObject(3, date);
+            pstmt.setObject(4, time);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("INSERT did not return a generated appointment ID");
+                }
+                int newId = keys.getInt(1);
+                logChanges(conn, Collections.singletonList(newId));
+                return new Appointment(newId, patientId, doctorId, Appointment.toEpochMinute(date, time), AppointmentStatus.BOOKED);
+            }
+        }
+    }
+
+    // BookingEngine.DayLoader: the doctor's active appointments on the given days, appointment ID -> start minute
+    private static Map<LocalDate, Map<Integer, Integer>> loadBookedStarts(int doctorId, Collection<LocalDate> dates)
+            throws SQLException {
+        // Served by idx_appt_doctor_date_status_time (one range per date)
+        String sql = "SELECT appointment_id, appointment_date, appointment_time FROM appointments " +
+                     "WHERE doctor_id = ? AND appointment_date IN (" + inListPlaceholders(dates.size()) + ") " +
+                     "AND status IN ('booked', 'in progress')";
+        Map<LocalDate, Map<Integer, Integer>> starts = new HashMap<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, doctorId);
+            bindInList(pstmt, 2, dates);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate date = rs.getObject("appointment_date", LocalDate.class);
+                    LocalTime time = rs.getObject("appointment_time", LocalTime.class);
+                    if (date != null && time != null) {
+                        starts.computeIfAbsent(date, d -> new HashMap<>())
+                              .put(rs.getInt("appointment_id"), time.getHour() * 60 + time.getMinute());
+                    }
+                }
+            }
+        }
+        return starts;
     }
 }
\ No newline at end of file
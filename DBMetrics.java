@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * Latency metrics for the DBManager operations.
+ *
+ * Each timed operation opens a Timer (try-with-resources) on the calling thread. While it is open,
+ * DBManager.getConnection() reports the pool acquire time and StatementCache reports the time spent
+ * in execute*() (the query round trip); whatever remains of the operation is counted as mapping
+ * (reading the ResultSet into objects, plus in-memory work). A SQLException from either is counted
+ * as an error. Operations served from memory simply show zero acquire and query time.
+ *
+ * Per operation this keeps call and error counts, the summed phase times and a LatencyHistogram of
+ * the whole call. The numbers are exposed over JMX (DoctorBooking:type=DBMetrics, see
+ * DBMetricsMXBean) and written to -Ddb.metrics.dumpFile on exit if set. -Ddb.metrics.enabled=false
+ * turns every Timer into a no-op.
+ */
+public final class DBMetrics implements DBMetricsMXBean {
+
+    private static final Log LOG = Log.get("db.metrics");
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("db.metrics.enabled", "true"));
+    private static final String DUMP_FILE = System.getProperty("db.metrics.dumpFile");
+
+    private static final DBMetrics INSTANCE = new DBMetrics();
+    private static final ConcurrentHashMap<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    // Innermost open Timer of this thread (operations may nest, e.g. bookSeries -> bookAppointments)
+    private static final ThreadLocal<Timer> CURRENT = new ThreadLocal<>();
+    private static final Timer NO_OP = new Timer(null, null);
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(INSTANCE, new ObjectName("DoctorBooking:type=DBMetrics"));
+            } catch (Exception e) {
+                LOG.warn("Could not register DBMetrics with JMX: " + e.getMessage());
+            }
+            if (DUMP_FILE != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> INSTANCE.dumpToFile(DUMP_FILE), "db-metrics-dump"));
+            }
+        }
+    }
+
+    private DBMetrics() {
+    }
+
+    public static DBMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /** Starts timing an operation on this thread; close the Timer when the operation returns. */
+    public static Timer start(String operation) {
+        if (!ENABLED) {
+            return NO_OP;
+        }
+        Timer timer = new Timer(OPERATIONS.computeIfAbsent(operation, Operation::new), CURRENT.get());
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    /** Called by DBManager.getConnection(): time spent waiting for a pooled connection. */
+    public static void recordAcquire(long nanos, boolean failed) {
+        for (Timer t = ENABLED ? CURRENT.get() : null; t != null; t = t.parent) {
+            t.acquireNanos += nanos;
+            t.failed |= failed;
+        }
+    }
+
+    /** Called by StatementCache around execute*(): the query round trip. */
+    public static void recordQuery(long nanos, boolean failed) {
+        for (Timer t = ENABLED ? CURRENT.get() : null; t != null; t = t.parent) {
+            t.queryNanos += nanos;
+            t.failed |= failed;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // One timed call
+    // ----------------------------------------------------------------------
+    public static final class Timer implements AutoCloseable {
+        private final Operation operation;
+        private final Timer parent;
+        private final long startNanos = System.nanoTime();
+        private long acquireNanos;
+        private long queryNanos;
+        private boolean failed;
+
+        private Timer(Operation operation, Timer parent) {
+            this.operation = operation;
+            this.parent = parent;
+        }
+
+        /** Marks the call as failed; driver errors are counted without this. */
+        public void failed() {
+            failed = true;
+        }
+
+        @Override
+        public void close() {
+            if (operation == null) {
+                return;
+            }
+            operation.record(System.nanoTime() - startNanos, acquireNanos, queryNanos, failed);
+            CURRENT.set(parent);
+            if (parent == null) {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    private static final class Operation {
+        final String name;
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder acquireNanos = new LongAdder();
+        final LongAdder queryNanos = new LongAdder();
+        final LongAdder mappingNanos = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long totalNanos, long acquire, long query, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            acquireNanos.add(acquire);
+            queryNanos.add(query);
+            mappingNanos.add(Math.max(0, totalNanos - acquire - query));
+            latency.record(totalNanos);
+        }
+
+        OperationStats snapshot() {
+            long n = calls.sum();
+            return new OperationStats(n, errors.sum(),
+                                      micros(latency.getMeanNanos()), micros(latency.getPercentileNanos(50)),
+                                      micros(latency.getPercentileNanos(90)), micros(latency.getPercentileNanos(99)),
+                                      micros(latency.getMaxNanos()),
+                                      n == 0 ? 0 : micros(acquireNanos.sum() / (double) n),
+                                      n == 0 ? 0 : micros(queryNanos.sum() / (double) n),
+                                      n == 0 ? 0 : micros(mappingNanos.sum() / (double) n));
+        }
+
+        void reset() {
+            calls.reset();
+            errors.reset();
+            acquireNanos.reset();
+            queryNanos.reset();
+            mappingNanos.reset();
+            latency.reset();
+        }
+
+        private static double micros(double nanos) {
+            return Math.round(nanos / 100.0) / 10.0;
+        }
+    }
+
+    /** Snapshot of one operation; times in microseconds. */
+    public static final class OperationStats {
+        private final long calls;
+        private final long errors;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p90Micros;
+        private final double p99Micros;
+        private final double maxMicros;
+        private final double acquireMeanMicros;
+        private final double queryMeanMicros;
+        private final double mappingMeanMicros;
+
+        OperationStats(long calls, long errors, double meanMicros, double p50Micros, double p90Micros,
+                       double p99Micros, double maxMicros, double acquireMeanMicros, double queryMeanMicros,
+                       double mappingMeanMicros) {
+            this.calls = calls;
+            this.errors = errors;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.acquireMeanMicros = acquireMeanMicros;
+            this.queryMeanMicros = queryMeanMicros;
+            this.mappingMeanMicros = mappingMeanMicros;
+        }
+
+        public long getCalls() { return calls; }
+        public long getErrors() { return errors; }
+        public double getMeanMicros() { return meanMicros; }
+        public double getP50Micros() { return p50Micros; }
+        public double getP90Micros() { return p90Micros; }
+        public double getP99Micros() { return p99Micros; }
+        public double getMaxMicros() { return maxMicros; }
+        /** Mean time waiting for a pooled connection. */
+        public double getAcquireMeanMicros() { return acquireMeanMicros; }
+        /** Mean time in statement execution (database round trips). */
+        public double getQueryMeanMicros() { return queryMeanMicros; }
+        /** Mean time for everything else: reading results into objects and in-memory work. */
+        public double getMappingMeanMicros() { return mappingMeanMicros; }
+    }
+
+    // ----------------------------------------------------------------------
+    // DBMetricsMXBean
+    // ----------------------------------------------------------------------
+    @Override
+    public Map<String, OperationStats> getOperations() {
+        Map<String, OperationStats> result = new TreeMap<>();
+        for (Operation op : OPERATIONS.values()) {
+            result.put(op.name, op.snapshot());
+        }
+        return result;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("DBManager metrics at ").append(LocalDateTime.now()).append(" (times in microseconds)\n");
+        sb.append(String.format("%-36s %8s %6s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                                "operation", "calls", "errors", "mean", "p50", "p90", "p99", "max",
+                                "acquire", "query", "mapping"));
+        for (Map.Entry<String, OperationStats> e : getOperations().entrySet()) {
+            OperationStats s = e.getValue();
+            sb.append(String.format("%-36s %8d %6d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                                    e.getKey(), s.calls, s.errors, s.meanMicros, s.p50Micros, s.p90Micros,
+                                    s.p99Micros, s.maxMicros, s.acquireMeanMicros, s.queryMeanMicros,
+                                    s.mappingMeanMicros));
+        }
+        sb.append("pool: ").append(getPoolStats()).append('\n');
+        return sb.toString();
+    }
+
+    @Override
+    public String getPoolStats() {
+        return DBManager.getPoolStats().toString();
+    }
+
+    @Override
+    public String dumpToFile(String path) {
+        Path file = Paths.get(path).toAbsolutePath();
+        try {
+            Files.write(file, getReport().getBytes(StandardCharsets.UTF_8));
+            LOG.info("Metrics written to " + file);
+            return file.toString();
+        } catch (IOException e) {
+            LOG.error("Could not write metrics to " + file + ": " + e.getMessage());
+            return "failed: " + e.getMessage();
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (Operation op : OPERATIONS.values()) {
+            op.reset();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+import java.util.Map;
+
+/** JMX view of DBMetrics, registered as DoctorBooking:type=DBMetrics. */
+public interface DBMetricsMXBean {
+
+    /** Per DBManager operation: calls, errors, latency percentiles and the acquire/query/mapping split. */
+    Map<String, DBMetrics.OperationStats> getOperations();
+
+    /** The same as a plain-text table. */
+    String getReport();
+
+    /** Connection pool snapshot (see ConnectionPool.Stats). */
+    String getPoolStats();
+
+    /** Writes getReport() to the file; returns the absolute path written. */
+    String dumpToFile(String path);
+
+    void reset();
+}
@@ -0,0 +1,232 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of each doctor's day, serving getDoctorsTodayAppointments, the status counts and
+ * the next appointment without a query once the day is loaded.
+ *
+ * A day is loaded with one query on first use and then kept current write-through: DBManager
+ * publishes every committed booking and status change on the AppointmentEventBus, and this store
+ * applies it (apply()). Changes made by other instances arrive the same way via the change poller.
+ * Days before today are evicted.
+ *
+ * The Appointment objects handed out are shared and must be treated as read-only; a status change
+ * replaces the stored object instead of modifying it.
+ */
+public class DayScheduleStore {
+
+    /** Loads every appointment (all statuses) of one doctor-day. */
+    @FunctionalInterface
+    public interface DayLoader {
+        List<Appointment> loadDay(int doctorId, LocalDate date) throws SQLException;
+    }
+
+    // Order within a day: start time, then ID (two appointments may share a slot once one is cancelled)
+    private static final Comparator<Appointment> ORDER =
+        Appointment.BY_START.thenComparingInt(Appointment::getId);
+
+    private final DayLoader loader;
+
+    // (doctorId, epochDay) packed into one long -> that day's schedule
+    private final ConcurrentHashMap<Long, DaySchedule> days = new ConcurrentHashMap<>();
+    // appointment ID -> day key, so a status change by ID finds its day
+    private final ConcurrentHashMap<Integer, Long> appointmentDays = new ConcurrentHashMap<>();
+    // Days being loaded -> changes seen meanwhile, replayed once the load is installed
+    private final ConcurrentHashMap<Long, List<AppointmentEvent>> loading = new ConcurrentHashMap<>();
+    private volatile long evictedBefore = Long.MIN_VALUE;
+
+    public DayScheduleStore(DayLoader loader) {
+        this.loader = loader;
+    }
+
+    /** The doctor's day, loading it with one query the first time. */
+    public DaySchedule day(int doctorId, LocalDate date) throws SQLException {
+        long key = dayKey(doctorId, date);
+        DaySchedule day = days.get(key);
+        if (day != null) {
+            return day;
+        }
+
+        List<AppointmentEvent> missed = Collections.synchronizedList(new ArrayList<>());
+        loading.put(key, missed);
+        try {
+            DaySchedule loaded = new DaySchedule(loader.loadDay(doctorId, date));
+            day = days.putIfAbsent(key, loaded);
+            if (day == null) {
+                day = loaded;
+                for (int i = 0; i < loaded.size; i++) {
+                    appointmentDays.put(loaded.items[i].getId(), key);
+                }
+            }
+        } finally {
+            loading.remove(key, missed);
+        }
+        // Changes committed while the query ran; anything the query already saw is skipped by version
+        synchronized (missed) {
+            for (AppointmentEvent event : missed) {
+                apply(event);
+            }
+        }
+        evictPastDays();
+        return day;
+    }
+
+    /** Write-through: applies a committed booking or status change to the loaded day it belongs to. */
+    public void apply(AppointmentEvent event) {
+        for (List<AppointmentEvent> missed : loading.values()) {
+            missed.add(event);
+        }
+
+        Appointment row = event.getAppointment();
+        Long key = appointmentDays.get(event.getAppointmentId());
+        if (key == null && row != null && row.isScheduled()) {
+            key = dayKey(row.getDoctorId(), row.getDate());
+        }
+        DaySchedule day = key != null ? days.get(key) : null;
+        if (day == null) {
+            return; // not loaded: it will be read fresh when first asked for
+        }
+        if (day.apply(event)) {
+            appointmentDays.putIfAbsent(event.getAppointmentId(), key);
+        }
+    }
+
+    /** Drops a doctor's cached day so it is reloaded on next use. */
+    public void invalidate(int doctorId, LocalDate date) {
+        days.remove(dayKey(doctorId, date));
+    }
+
+    public void invalidateAll() {
+        days.clear();
+        appointmentDays.clear();
+    }
+
+    // At most once per day: the first access after midnight drops yesterday's schedules
+    private void evictPastDays() {
+        long today = LocalDate.now().toEpochDay();
+        if (evictedBefore >= today) {
+            return;
+        }
+        evictedBefore = today;
+        days.keySet().removeIf(key -> (key & 0xFFFFFFFFL) < today);
+        appointmentDays.values().removeIf(key -> (key & 0xFFFFFFFFL) < today);
+    }
+
+    private static long dayKey(int doctorId, LocalDate date) {
+        return ((long) doctorId << 32) | (date.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    // ----------------------------------------------------------------------
+    // One doctor-day: appointments sorted by start time plus a counter per status
+    // ----------------------------------------------------------------------
+    public static final class DaySchedule {
+        private Appointment[] items;
+        private int size;
+        private final int[] counts = new int[AppointmentStatus.values().length]; // by AppointmentStatus.getCode()
+
+        private DaySchedule(List<Appointment> appointments) {
+            items = appointments.toArray(new Appointment[Math.max(8, appointments.size())]);
+            size = appointments.size();
+            Arrays.sort(items, 0, size, ORDER);
+            for (int i = 0; i < size; i++) {
+                counts[items[i].getStatus().getCode()]++;
+            }
+        }
+
+        /** Appointments with the given status, soonest first. */
+        public synchronized List<Appointment> withStatus(AppointmentStatus status) {
+            List<Appointment> result = new ArrayList<>(counts[status.getCode()]);
+            for (int i = 0; i < size; i++) {
+                if (items[i].getStatus() == status) {
+                    result.add(items[i]);
+                }
+            }
+            return result;
+        }
+
+        /** The earliest appointment with the given status, or null. */
+        public synchronized Appointment first(AppointmentStatus status) {
+            if (counts[status.getCode()] == 0) {
+                return null;
+            }
+            for (int i = 0; i < size; i++) {
+                if (items[i].getStatus() == status) {
+                    return items[i];
+                }
+            }
+            return null;
+        }
+
+        /** Count per status; every status is present. */
+        public synchronized Map<AppointmentStatus, Integer> counts() {
+            Map<AppointmentStatus, Integer> result = new EnumMap<>(AppointmentStatus.class);
+            for (AppointmentStatus status : AppointmentStatus.values()) {
+                result.put(status, counts[status.getCode()]);
+            }
+            return result;
+        }
+
+        /** Applies the change if it concerns this day; true if the appointment is (now) part of it. */
+        private synchronized boolean apply(AppointmentEvent event) {
+            int index = indexOf(event.getAppointmentId());
+            Appointment row = event.getAppointment();
+
+            if (index < 0) {
+                if (row == null) {
+                    return false;
+                }
+                insert(row);
+                return true;
+            }
+
+            Appointment current = items[index];
+            int version = event.getVersion();
+            if (version == AppointmentEvent.UNKNOWN_VERSION) {
+                if (current.getStatus() == event.getStatus()) {
+                    return true; // already reflected (e.g. loaded after the change)
+                }
+                version = current.getVersion() + 1; // every status UPDATE bumps version by one
+            } else if (version <= current.getVersion()) {
+                return true; // stale or duplicate
+            }
+            counts[current.getStatus().getCode()]--;
+            counts[event.getStatus().getCode()]++;
+            items[index] = new Appointment(current.getId(), current.getPatientId(), current.getDoctorId(),
+                                           current.getStartMinute(), event.getStatus(), version);
+            return true;
+        }
+
+        // Binary search for the slot, then shift the tail by one (a day holds tens of appointments)
+        private void insert(Appointment app) {
+            int pos = Arrays.binarySearch(items, 0, size, app, ORDER);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            System.arraycopy(items, pos, items, pos + 1, size - pos);
+            items[pos] = app;
+            size++;
+            counts[app.getStatus().getCode()]++;
+        }
+
+        private int indexOf(int appointmentId) {
+            for (int i = 0; i < size; i++) {
+                if (items[i].getId() == appointmentId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -3,14 +3,18 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 
 public class DoctorAppointmentsFrame extends JFrame implements ActionListener {
     
+    private final AuthResult user; // The logged-in doctor
     private final int doctorId;
     private JTable appointmentTable;
     private DefaultTableModel tableModel;
@@ -18,9 +22,21 @@ public class DoctorAppointmentsFrame extends JFrame implements ActionListener {
     private PriorityQueue<Appointment> waitingQueue; 
     private JLabel nextPatientLabel; 
     private JButton processNextButton;
+    private JButton completeAllButton;
 
-    public DoctorAppointmentsFrame(int doctorId) {
-        this.doctorId = doctorId;
+    // DB calls run off the EDT; cancelled when this window is disposed
+    private final AsyncDB.TaskGroup tasks = new AsyncDB.TaskGroup();
+
+    // Live bookings/status changes (see AppointmentEventBus); events that arrive before the first
+    // load has returned are held in pendingEvents and applied after it. If the load fails, both are
+    // dropped: without the list there is nothing to apply the events to.
+    private AppointmentEventBus.Subscription changes;
+    private List<AppointmentEvent> pendingEvents = new ArrayList<>();
+    private final Map<Integer, Integer> shownVersions = new HashMap<>(); // appointment ID -> row version shown
+
+    public DoctorAppointmentsFrame(AuthResult user) {
+        this.user = user;
+        this.doctorId = user.getUserId();
         setTitle("Today's Appointments & Queue - Dr. " + doctorId);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); 
         setSize(1000, 600);
@@ -35,7 +51,8 @@ public class DoctorAppointmentsFrame extends JFrame implements ActionListener {
         // This ensures nextPatientLabel and processNextButton are initialized.
         JPanel queuePanel = createQueuePanel(); 
 
-        // 3. Load Data (now safe to call updateQueueDisplay)
+        // 3. Load Data (now safe to call updateQueueDisplay); subscribe first so no change is missed
+        changes = DBManager.subscribeToChanges(event -> SwingUtilities.invokeLater(() -> applyChange(event)));
         loadAppointmentsData();
 
         // 4. Assemble the UI
@@ -74,8 +91,17 @@ public class DoctorAppointmentsFrame extends JFrame implements ActionListener {
         processNextButton.setForeground(Color.WHITE);
         processNextButton.addActionListener(this);
 
+        // End of day: mark every remaining queued appointment completed in one batch
+        completeAllButton = new JButton("Complete All Remaining");
+        completeAllButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        completeAllButton.addActionListener(this);
+
+        JPanel buttons = new JPanel(new GridLayout(2, 1, 5, 5));
+        buttons.add(processNextButton);
+        buttons.add(completeAllButton);
+
         panel.add(nextPatientLabel, BorderLayout.CENTER);
-        panel.add(processNextButton, BorderLayout.SOUTH);
+        panel.add(buttons, BorderLayout.SOUTH);
 
         return panel;
     }
@@ -99,59 +125,136 @@ public class DoctorAppointmentsFrame extends JFrame implements ActionListener {
         // DSA CONCEPT: Initialize Priority Queue. 
         // Comparator ensures appointments are sorted by DateTime (soonest first).
         waitingQueue = new PriorityQueue<>(
-            Comparator.comparing(Appointment::getDateTime)
+            Appointment.BY_START
         );
 
-        List<Appointment> appointments = DBManager.getDoctorsTodayAppointments(this.doctorId);
+        // Loading indicator until the background query returns
+        nextPatientLabel.setText("Loading today's appointments...");
+        nextPatientLabel.setForeground(Color.GRAY);
+        processNextButton.setEnabled(false);
+        completeAllButton.setEnabled(false);
 
-        if (appointments.isEmpty()) {
-            updateQueueDisplay();
-            return;
-        }
+        tasks.onEdt(this.user, AsyncDB.getDoctorsTodayAppointments(this.user), this::showAppointments, error -> {
+            stopLiveUpdates();
+            nextPatientLabel.setText("Could not load appointments (reopen the window to retry): " + error.getMessage());
+            nextPatientLabel.setForeground(Color.RED);
+        });
+    }
 
+    private void showAppointments(List<Appointment> appointments) {
         for (Appointment app : appointments) {
             // Add all fetched appointments (which are 'booked') to the Priority Queue
             waitingQueue.offer(app); 
             
             // Also add to the table view for the doctor to see the full list
-            String timeOnly = app.getDateTime().substring(11);
+            String timeOnly = app.getTimeText();
             Object[] rowData = {
                 app.getId(),
                 timeOnly,
                 app.getPatientId(),
-                app.getStatus()
+                app.getStatus().getLabel()
             };
             tableModel.addRow(rowData);
+            shownVersions.put(app.getId(), app.getVersion());
         }
+
+        // Catch up on changes made while the query was running
+        List<AppointmentEvent> missed = pendingEvents;
+        pendingEvents = null;
+        missed.forEach(this::applyChange);
         
         // Update the queue display after loading data
         updateQueueDisplay();
     }
+
+    /**
+     * Applies one booking or status change to the table and queue (on the EDT), without reloading.
+     * Changes already shown (same or older version) are ignored, since a change made here may also
+     * come back from the change poller.
+     */
+    private void applyChange(AppointmentEvent event) {
+        if (changes == null) {
+            return; // unsubscribed; this event was already queued on the EDT
+        }
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+            return;
+        }
+        int apptId = event.getAppointmentId();
+        int row = rowOf(apptId);
+
+        if (row < 0) {
+            // Not listed: only a new booking with this doctor for today is of interest
+            Appointment app = event.getAppointment();
+            if (app == null || app.getDoctorId() != doctorId || app.getStatus() != AppointmentStatus.BOOKED
+                || !LocalDate.now().equals(app.getDate())) {
+                return;
+            }
+            tableModel.insertRow(rowForTime(app.getTimeText()),
+                new Object[] {app.getId(), app.getTimeText(), app.getPatientId(), app.getStatus().getLabel()});
+            waitingQueue.offer(app);
+        } else {
+            Integer shown = shownVersions.get(apptId);
+            if (shown != null && event.getVersion() != AppointmentEvent.UNKNOWN_VERSION && event.getVersion() <= shown) {
+                return;
+            }
+            tableModel.setValueAt(event.getStatus().getLabel(), row, 3);
+            if (event.getStatus() != AppointmentStatus.BOOKED) {
+                // Cancelled or completed elsewhere: it must not be processed from this queue
+                waitingQueue.removeIf(app -> app.getId() == apptId);
+            }
+        }
+        if (event.getVersion() != AppointmentEvent.UNKNOWN_VERSION) {
+            shownVersions.put(apptId, event.getVersion());
+        }
+        updateQueueDisplay();
+    }
+
+    // Table row of the appointment, or -1 (column 0 holds the Appt ID)
+    private int rowOf(int apptId) {
+        for (int i = 0; i < tableModel.getRowCount(); i++) {
+            if ((int) tableModel.getValueAt(i, 0) == apptId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Insert position that keeps the table ordered by time (column 1 holds "HH:mm")
+    private int rowForTime(String time) {
+        int i = 0;
+        while (i < tableModel.getRowCount() && ((String) tableModel.getValueAt(i, 1)).compareTo(time) <= 0) {
+            i++;
+        }
+        return i;
+    }
     
     private void updateQueueDisplay() {
         if (waitingQueue.isEmpty()) {
             nextPatientLabel.setText("Queue Empty. Time for a coffee break!");
             nextPatientLabel.setForeground(Color.BLUE);
             processNextButton.setEnabled(false);
+            completeAllButton.setEnabled(false);
         } else {
             Appointment nextApp = waitingQueue.peek(); // DSA: peek() to see the head
-            String time = nextApp.getDateTime().substring(11);
+            String time = nextApp.getTimeText();
             String text = String.format("Next: Patient ID %d @ %s (Appt ID: %d)", 
                                         nextApp.getPatientId(), time, nextApp.getId());
             nextPatientLabel.setText(text);
             nextPatientLabel.setForeground(new Color(0, 100, 0)); // Dark Green
             processNextButton.setEnabled(true);
+            completeAllButton.setEnabled(true);
         }
     }
 
-    private void updateTableRowStatus(int apptId, String newStatus) {
+    private void updateTableRowStatus(int apptId, AppointmentStatus newStatus) {
     // Iterate through all rows in the JTable model
     for (int i = 0; i < tableModel.getRowCount(); i++) {
         // TableModel column 0 holds the Appt ID (must match the column index in setupAppointmentTable)
         if ((int) tableModel.getValueAt(i, 0) == apptId) {
             
             // TableModel column 3 holds the Status
-            tableModel.setValueAt(newStatus, i, 3);
+            tableModel.setValueAt(newStatus.getLabel(), i, 3);
             
             // Optional: Visually highlight the row (e.g., set background color)
             // Note: This often requires a custom TableCellRenderer, 
@@ -168,31 +271,111 @@ public void actionPerformed(ActionEvent e) {
         Appointment nextApp = waitingQueue.poll(); 
         
         if (nextApp != null) {
-            // --- STEP 1: DATABASE SYNCHRONIZATION ---
-            boolean dbSuccess = DBManager.updateAppointmentStatus(nextApp.getId(), "completed"); 
-
-            if (dbSuccess) {
-                // --- STEP 2: UI SYNCHRONIZATION ---
-                
-                // 2a. Update the list/JTable alongside
-                updateTableRowStatus(nextApp.getId(), "Completed"); 
-                
-                // 2b. Show alert to doctor
-                JOptionPane.showMessageDialog(this,
-                    "Patient ID " + nextApp.getPatientId() + " successfully completed (Appt ID " + nextApp.getId() + ").",
-                    "Appointment Completed", JOptionPane.INFORMATION_MESSAGE);
-                
-                // 2c. Update the visual display of the Priority Queue
-                updateQueueDisplay();
-                
+            // --- STEP 1: DATABASE SYNCHRONIZATION (off the EDT) ---
+            processNextButton.setEnabled(false);
+            // Version-checked: fails with CONFLICT if the patient cancelled since the list was loaded
+            tasks.onEdt(user, AsyncDB.updateStatus(user, nextApp, AppointmentStatus.COMPLETED),
+                result -> showProcessResult(nextApp, result),
+                error -> showProcessResult(nextApp, StatusUpdateResult.error(error.getMessage())));
+        }
+    } else if (e.getSource() == completeAllButton) {
+        completeAllRemaining();
+    }
+}
+
+    private void completeAllRemaining() {
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Mark all " + waitingQueue.size() + " remaining appointments as completed?",
+            "Complete All", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        // Drain in queue order; one batched UPDATE for all of them
+        List<Appointment> batch = new ArrayList<>(waitingQueue.size());
+        Map<Integer, AppointmentStatus> updates = new LinkedHashMap<>();
+        while (!waitingQueue.isEmpty()) {
+            Appointment app = waitingQueue.poll();
+            batch.add(app);
+            updates.put(app.getId(), AppointmentStatus.COMPLETED);
+        }
+        processNextButton.setEnabled(false);
+        completeAllButton.setEnabled(false);
+
+        tasks.onEdt(user, AsyncDB.updateStatuses(user, updates, false),
+            result -> showCompleteAllResult(batch, result.getResults()),
+            error -> showCompleteAllResult(batch, null));
+    }
+
+    private void showCompleteAllResult(List<Appointment> batch, List<Boolean> completed) {
+        int done = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Appointment app = batch.get(i);
+            if (completed != null && completed.get(i)) {
+                updateTableRowStatus(app.getId(), AppointmentStatus.COMPLETED);
+                done++;
             } else {
-                // If DB fails, put the appointment back on the queue and alert the doctor
-                waitingQueue.offer(nextApp); 
-                JOptionPane.showMessageDialog(this, 
-                    "ERROR: Failed to update database status. Please check connection.",
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+                waitingQueue.offer(app); // not updated: keep it in the queue
             }
         }
+        updateQueueDisplay();
+
+        if (done == batch.size()) {
+            JOptionPane.showMessageDialog(this, done + " appointments marked completed.",
+                "Appointments Completed", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this,
+                done + " of " + batch.size() + " appointments marked completed; the rest are still in the queue.",
+                "Database Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showProcessResult(Appointment nextApp, StatusUpdateResult result) {
+        if (result.isUpdated()) {
+            // --- STEP 2: UI SYNCHRONIZATION ---
+            
+            // 2a. Update the list/JTable alongside
+            updateTableRowStatus(nextApp.getId(), AppointmentStatus.COMPLETED); 
+            
+            // 2b. Show alert to doctor
+            JOptionPane.showMessageDialog(this,
+                "Patient ID " + nextApp.getPatientId() + " successfully completed (Appt ID " + nextApp.getId() + ").",
+                "Appointment Completed", JOptionPane.INFORMATION_MESSAGE);
+            
+            // 2c. Update the visual display of the Priority Queue
+            updateQueueDisplay();
+            
+        } else if (result.getOutcome() != StatusUpdateResult.Outcome.ERROR) {
+            // Changed or removed elsewhere (e.g. cancelled by the patient): show the current state, do not requeue
+            if (result.getCurrentStatus() != null) {
+                updateTableRowStatus(nextApp.getId(), result.getCurrentStatus());
+            }
+            updateQueueDisplay();
+            JOptionPane.showMessageDialog(this,
+                "Appt ID " + nextApp.getId() + " was not completed: " + result.getMessage(),
+                "Appointment Changed", JOptionPane.WARNING_MESSAGE);
+        } else {
+            // If DB fails, put the appointment back on the queue and alert the doctor
+            waitingQueue.offer(nextApp); 
+            updateQueueDisplay();
+            JOptionPane.showMessageDialog(this, 
+                "ERROR: Failed to update database status. Please check connection.",
+                "Database Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void stopLiveUpdates() {
+        if (changes != null) {
+            changes.close();
+            changes = null;
+        }
+        pendingEvents = null;
+    }
+
+    @Override
+    public void dispose() {
+        stopLiveUpdates();
+        tasks.cancelAll();
+        super.dispose();
     }
-}
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, size-bounded, TTL-evicting cache of Doctor rows backing DBManager.getDoctorById().
+ *
+ * - LRU eviction once maxSize entries are cached.
+ * - Entries expire ttlMillis after they were loaded.
+ * - Single-flight loading: concurrent misses for the same doctor_id share one SELECT.
+ */
+public class DoctorCache {
+
+    /** Loads one doctor row; returns null if the doctor does not exist. */
+    @FunctionalInterface
+    public interface Loader {
+        Doctor load(int doctorId) throws SQLException;
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    // DSA: access-ordered LinkedHashMap gives O(1) lookup plus LRU order (guarded by "this")
+    private final LinkedHashMap<Integer, Entry> entries;
+    // Loads currently running, so that a herd of misses for one id waits on a single query
+    private final ConcurrentHashMap<Integer, CompletableFuture<Doctor>> inFlight = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; a load that overlaps an invalidation is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    // --- Metrics ---
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public DoctorCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > DoctorCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached doctor, or loads it with the given loader on a miss.
+     * Doctors that do not exist (loader returns null) are not cached.
+     */
+    public Doctor get(int doctorId, Loader loader) throws SQLException {
+        Doctor cached = lookup(doctorId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<Doctor> mine = new CompletableFuture<>();
+        CompletableFuture<Doctor> running = inFlight.putIfAbsent(doctorId, mine);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            // Another thread may have finished loading between our lookup and putIfAbsent
+            cached = lookup(doctorId);
+            if (cached != null) {
+                mine.complete(cached);
+                return cached;
+            }
+
+            long gen = generation.get();
+            long start = System.nanoTime();
+            Doctor doctor = loader.load(doctorId);
+            loadNanos.add(System.nanoTime() - start);
+            loads.increment();
+
+            if (doctor != null && generation.get() == gen) {
+                put(doctor);
+            }
+            mine.complete(doctor);
+            return doctor;
+        } catch (SQLException | RuntimeException e) {
+            loadFailures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(doctorId, mine);
+        }
+    }
+
+    /** Inserts or replaces a doctor, e.g. after it was loaded in bulk. */
+    public synchronized void put(Doctor doctor) {
+        entries.put(doctor.getId(), new Entry(doctor, System.currentTimeMillis()));
+    }
+
+    /** Drops one doctor; call this whenever that doctor's row changes. */
+    public void invalidate(int doctorId) {
+        generation.incrementAndGet();
+        synchronized (this) {
+            entries.remove(doctorId);
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        synchronized (this) {
+            entries.clear();
+        }
+    }
+
+    private synchronized Doctor lookup(int doctorId) {
+        Entry entry = entries.get(doctorId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            entries.remove(doctorId);
+            return null;
+        }
+        return entry.doctor;
+    }
+
+    private static Doctor await(CompletableFuture<Doctor> running) throws SQLException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for doctor lookup.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Doctor lookup failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new Stats(size, hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(),
+                         loadNanos.sum(), evictions.sum());
+    }
+
+    private static final class Entry {
+        final Doctor doctor;
+        final long loadedAt;
+
+        Entry(Doctor doctor, long loadedAt) {
+            this.doctor = doctor;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Monitoring snapshot
+    // ----------------------------------------------------------------------
+    public static final class Stats {
+        public final int size;
+        public final long hits;
+        public final long misses;
+        public final long loads;
+        public final long loadFailures;
+        public final long totalLoadNanos;
+        public final long evictions;
+
+        Stats(int size, long hits, long misses, long loads, long loadFailures, long totalLoadNanos, long evictions) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.loads = loads;
+            this.loadFailures = loadFailures;
+            this.totalLoadNanos = totalLoadNanos;
+            this.evictions = evictions;
+        }
+
+        public double getHitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        public double getAverageLoadMillis() {
+            return loads == 0 ? 0.0 : totalLoadNanos / 1_000_000.0 / loads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d, hits=%d, misses=%d, hitRatio=%.3f, loads=%d, loadFailures=%d, " +
+                                 "avgLoadMs=%.3f, evictions=%d",
+                                 size, hits, misses, getHitRatio(), loads, loadFailures,
+                                 getAverageLoadMillis(), evictions);
+        }
+    }
+}
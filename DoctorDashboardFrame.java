@@ -9,7 +9,8 @@ public class DoctorDashboardFrame extends JFrame implements ActionListener {
     private final Color PRIMARY_COLOR = new Color(50, 150, 250); // Blue
     private final Color ACCENT_COLOR = new Color(25, 25, 112); // Midnight Blue
 
-    private final int doctorId; // Stored ID for fetching personalized data
+    private final AuthResult user; // The logged-in doctor, passed on to DB calls and new frames
+    private final int doctorId;
     private JButton manageAppointmentsButton;
     private JButton logoutButton;
 
@@ -18,8 +19,12 @@ public class DoctorDashboardFrame extends JFrame implements ActionListener {
     private JLabel completedLabel;
     private JLabel nextPatientLabel;
 
-    public DoctorDashboardFrame(int doctorId) {
-        this.doctorId = doctorId; // Initialize the ID
+    // DB calls run off the EDT; cancelled when this window is disposed
+    private final AsyncDB.TaskGroup tasks = new AsyncDB.TaskGroup();
+
+    public DoctorDashboardFrame(AuthResult user) {
+        this.user = user;
+        this.doctorId = user.getUserId();
         
         // 1. Frame Setup
         setTitle("Doctor Dashboard - Dr. " + doctorId);
@@ -128,15 +133,25 @@ public class DoctorDashboardFrame extends JFrame implements ActionListener {
     }
 
     /**
-     * Fetches the latest statistics from the DBManager and updates the JLabels.
+     * Fetches the latest statistics from the DBManager in the background; the JLabels
+     * keep showing "Loading..." until the result arrives on the EDT.
      */
     private void updateQuickStats() {
-        // 1. Fetch counts
-        int scheduledCount = DBManager.countAppointmentsByStatus(this.doctorId, "booked");
-        int completedCount = DBManager.countAppointmentsByStatus(this.doctorId, "completed");
+        // 1. Fetch counts and the next patient (one round trip, off the EDT)
+        tasks.onEdt(this.user, AsyncDB.getDoctorDaySummary(this.user), this::showQuickStats, error -> {
+            scheduledLabel.setText("Remaining: N/A");
+            completedLabel.setText("Completed: N/A");
+            nextPatientLabel.setText("Next Patient: unavailable");
+            nextPatientLabel.setForeground(Color.RED);
+        });
+    }
+
+    private void showQuickStats(DoctorDaySummary summary) {
+        int scheduledCount = summary.getCount(AppointmentStatus.BOOKED);
+        int completedCount = summary.getCount(AppointmentStatus.COMPLETED);
         
-        // 2. Fetch the next patient
-        Appointment nextApp = DBManager.getNextAppointment(this.doctorId);
+        // 2. The next patient
+        Appointment nextApp = summary.getNextAppointment();
         
         // 3. Update JLabels
         scheduledLabel.setText("Remaining: " + scheduledCount);
@@ -144,7 +159,7 @@ public class DoctorDashboardFrame extends JFrame implements ActionListener {
 
         if (nextApp != null) {
             String nextPatient = "Patient ID " + nextApp.getPatientId() + 
-                                 " @ " + nextApp.getDateTime().substring(11); // gets the HH:MM part
+                                 " @ " + nextApp.getTimeText(); // HH:MM, formatted only for display
             nextPatientLabel.setText("Next Patient: " + nextPatient);
             nextPatientLabel.setForeground(new Color(0, 100, 0)); // Dark Green
         } else {
@@ -158,12 +173,19 @@ public class DoctorDashboardFrame extends JFrame implements ActionListener {
         if (e.getSource() == logoutButton) {
             int result = JOptionPane.showConfirmDialog(this, "Are you sure you want to log out?", "Confirm Logout", JOptionPane.YES_NO_OPTION);
             if (result == JOptionPane.YES_OPTION) {
+                AuthService.logout(user.getToken());
                 dispose(); 
                 // new LoginFrame(); // Uncomment when LoginFrame is available
             }
         } else if (e.getSource() == manageAppointmentsButton) {
             // Action to open the Appointments Frame
-            new DoctorAppointmentsFrame(this.doctorId);
+            new DoctorAppointmentsFrame(this.user);
         }
     }
+
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
+    }
 }
\ No newline at end of file
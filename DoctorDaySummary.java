@@ -0,0 +1,55 @@
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Everything the doctor dashboard shows for one day: a count per status and the next
+ * booked appointment. Built by DBManager.getDoctorDaySummary() from the in-memory day schedule
+ * (DayScheduleStore), without a query once the day is loaded.
+ */
+public class DoctorDaySummary {
+    private final int doctorId;
+    private final LocalDate date;
+    private final Map<AppointmentStatus, Integer> counts;
+    private final Appointment nextAppointment;
+
+    public DoctorDaySummary(int doctorId, LocalDate date, Map<AppointmentStatus, Integer> counts,
+                            Appointment nextAppointment) {
+        this.doctorId = doctorId;
+        this.date = date;
+        Map<AppointmentStatus, Integer> copy = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            copy.put(status, counts.getOrDefault(status, 0));
+        }
+        this.counts = Collections.unmodifiableMap(copy);
+        this.nextAppointment = nextAppointment;
+    }
+
+    public int getDoctorId() { return doctorId; }
+    public LocalDate getDate() { return date; }
+
+    /** Count per status; every status is present (0 if none). */
+    public Map<AppointmentStatus, Integer> getCounts() { return counts; }
+
+    public int getCount(AppointmentStatus status) {
+        return counts.get(status);
+    }
+
+    public int getTotal() {
+        int total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** The earliest 'booked' appointment of the day, or null if the queue is empty. */
+    public Appointment getNextAppointment() { return nextAppointment; }
+
+    @Override
+    public String toString() {
+        return "Dr. " + doctorId + " on " + date + ": " + counts +
+               ", next=" + (nextAppointment != null ? nextAppointment : "none");
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable in-memory snapshot of the doctors table.
+ *
+ * Holds the doctors pre-sorted by specialization, then name (the order the booking
+ * combo box shows) plus an ID index, so both the doctor list and per-row ID lookups
+ * are served from memory. Updates are copy-on-write: withDoctor/withoutDoctor return
+ * a new snapshot, so readers never need a lock.
+ */
+public class DoctorDirectory {
+
+    // DSA: Custom comparator - specialization first, then name (ID only as a stable tie-breaker)
+    public static final Comparator<Doctor> BY_SPECIALIZATION_THEN_NAME =
+        Comparator.comparing(Doctor::getSpecialization)
+                  .thenComparing(Doctor::getName)
+                  .thenComparingInt(Doctor::getId);
+
+    private static final DoctorDirectory EMPTY = new DoctorDirectory(new ArrayList<>(), new HashMap<>());
+
+    private final List<Doctor> sorted;
+    private final Map<Integer, Doctor> byId;
+
+    private DoctorDirectory(List<Doctor> sorted, Map<Integer, Doctor> byId) {
+        this.sorted = Collections.unmodifiableList(sorted);
+        this.byId = byId;
+    }
+
+    public static DoctorDirectory empty() {
+        return EMPTY;
+    }
+
+    public static DoctorDirectory of(Collection<Doctor> doctors) {
+        List<Doctor> sorted = new ArrayList<>(doctors);
+        sorted.sort(BY_SPECIALIZATION_THEN_NAME);
+        Map<Integer, Doctor> byId = new HashMap<>(sorted.size() * 2);
+        for (Doctor d : sorted) {
+            byId.put(d.getId(), d);
+        }
+        return new DoctorDirectory(sorted, byId);
+    }
+
+    /** All doctors, sorted by specialization then name. The list is read-only. */
+    public List<Doctor> getSorted() {
+        return sorted;
+    }
+
+    /** O(1) lookup by ID; null if the doctor is not in this snapshot. */
+    public Doctor find(int doctorId) {
+        return byId.get(doctorId);
+    }
+
+    public int size() {
+        return sorted.size();
+    }
+
+    /** Returns a new snapshot with the doctor inserted (or replaced) at its sorted position. */
+    public DoctorDirectory withDoctor(Doctor doctor) {
+        List<Doctor> newSorted = new ArrayList<>(sorted);
+        Doctor previous = byId.get(doctor.getId());
+        if (previous != null) {
+            newSorted.remove(Collections.binarySearch(newSorted, previous, BY_SPECIALIZATION_THEN_NAME));
+        }
+        // DSA: binary search for the insertion point keeps the list sorted in O(log n) comparisons
+        int pos = Collections.binarySearch(newSorted, doctor, BY_SPECIALIZATION_THEN_NAME);
+        newSorted.add(pos < 0 ? -pos - 1 : pos, doctor);
+
+        Map<Integer, Doctor> newById = new HashMap<>(byId);
+        newById.put(doctor.getId(), doctor);
+        return new DoctorDirectory(newSorted, newById);
+    }
+
+    /** Returns a new snapshot without the given doctor (or this one if it was not present). */
+    public DoctorDirectory withoutDoctor(int doctorId) {
+        Doctor previous = byId.get(doctorId);
+        if (previous == null) {
+            return this;
+        }
+        List<Doctor> newSorted = new ArrayList<>(sorted);
+        newSorted.remove(Collections.binarySearch(newSorted, previous, BY_SPECIALIZATION_THEN_NAME));
+        Map<Integer, Doctor> newById = new HashMap<>(byId);
+        newById.remove(doctorId);
+        return new DoctorDirectory(newSorted, newById);
+    }
+}
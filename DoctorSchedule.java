@@ -0,0 +1,140 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A doctor's working-hours template: shifts per weekday, each cut into fixed-length slots,
+ * plus dated closures (holidays, leave, a blocked afternoon) that override the template.
+ *
+ * Breaks are simply the gaps between two shifts of the same day (e.g. 09:00-12:00 and 13:00-17:00).
+ * Stored in doctor_schedules / doctor_schedule_exceptions; doctors without rows get the clinic default.
+ * Immutable.
+ */
+public class DoctorSchedule {
+
+    /** One working stretch of a weekday, e.g. 09:00-12:00 in 20-minute slots. Times are minutes since midnight. */
+    public static final class Shift {
+        private final int startMinute;
+        private final int endMinute;
+        private final int slotMinutes;
+
+        public Shift(int startMinute, int endMinute, int slotMinutes) {
+            if (startMinute < 0 || endMinute > 24 * 60 || startMinute >= endMinute || slotMinutes <= 0) {
+                throw new IllegalArgumentException("Invalid shift " + startMinute + "-" + endMinute + " / " + slotMinutes);
+            }
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+            this.slotMinutes = slotMinutes;
+        }
+
+        public int getStartMinute() { return startMinute; }
+        public int getEndMinute() { return endMinute; }
+        public int getSlotMinutes() { return slotMinutes; }
+    }
+
+    /** A dated stretch when the doctor is unavailable; 00:00-24:00 means the whole day off. */
+    public static final class Closure {
+        private final int startMinute;
+        private final int endMinute;
+
+        public Closure(int startMinute, int endMinute) {
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+
+        public static Closure wholeDay() {
+            return new Closure(0, 24 * 60);
+        }
+
+        public int getStartMinute() { return startMinute; }
+        public int getEndMinute() { return endMinute; }
+    }
+
+    private final Map<DayOfWeek, List<Shift>> weekly;
+    private final Map<LocalDate, List<Closure>> closures;
+
+    public DoctorSchedule(Map<DayOfWeek, List<Shift>> weekly, Map<LocalDate, List<Closure>> closures) {
+        this.weekly = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<Shift> shifts = new ArrayList<>(weekly.getOrDefault(day, Collections.emptyList()));
+            shifts.sort(Comparator.comparingInt(Shift::getStartMinute));
+            this.weekly.put(day, Collections.unmodifiableList(shifts));
+        }
+        this.closures = new HashMap<>();
+        for (Map.Entry<LocalDate, List<Closure>> e : closures.entrySet()) {
+            this.closures.put(e.getKey(), Collections.unmodifiableList(new ArrayList<>(e.getValue())));
+        }
+    }
+
+    /** The same single shift on every day of the week, no closures (the clinic default). */
+    public static DoctorSchedule everyDay(int startMinute, int endMinute, int slotMinutes) {
+        Map<DayOfWeek, List<Shift>> weekly = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            weekly.put(day, Collections.singletonList(new Shift(startMinute, endMinute, slotMinutes)));
+        }
+        return new DoctorSchedule(weekly, Collections.emptyMap());
+    }
+
+    public List<Shift> getShifts(DayOfWeek day) {
+        return weekly.get(day);
+    }
+
+    public List<Closure> getClosures(LocalDate date) {
+        return closures.getOrDefault(date, Collections.emptyList());
+    }
+
+    /** Start minutes of the bookable template slots on that date (closures removed), ascending. */
+    public int[] slotStartsOn(LocalDate date) {
+        List<Shift> shifts = weekly.get(date.getDayOfWeek());
+        int[] starts = new int[16];
+        int n = 0;
+        for (Shift shift : shifts) {
+            for (int s = shift.startMinute; s + shift.slotMinutes <= shift.endMinute; s += shift.slotMinutes) {
+                if (!isClosed(date, s, s + shift.slotMinutes)) {
+                    if (n == starts.length) {
+                        starts = Arrays.copyOf(starts, n * 2);
+                    }
+                    starts[n++] = s;
+                }
+            }
+        }
+        return Arrays.copyOf(starts, n);
+    }
+
+    /** Slot length of the shift covering that minute, or 0 if the doctor does not work then (ignores closures). */
+    public int slotMinutesAt(LocalDate date, int minuteOfDay) {
+        for (Shift shift : weekly.get(date.getDayOfWeek())) {
+            if (minuteOfDay >= shift.startMinute && minuteOfDay < shift.endMinute) {
+                return shift.slotMinutes;
+            }
+        }
+        return 0;
+    }
+
+    /** Length of the template slot starting exactly at that minute, or 0 if no open slot starts there. */
+    public int bookableLength(LocalDate date, int startMinute) {
+        for (Shift shift : weekly.get(date.getDayOfWeek())) {
+            int offset = startMinute - shift.startMinute;
+            if (offset >= 0 && offset % shift.slotMinutes == 0 && startMinute + shift.slotMinutes <= shift.endMinute) {
+                return isClosed(date, startMinute, startMinute + shift.slotMinutes) ? 0 : shift.slotMinutes;
+            }
+        }
+        return 0;
+    }
+
+    private boolean isClosed(LocalDate date, int start, int end) {
+        for (Closure c : getClosures(date)) {
+            if (c.startMinute < end && c.endMinute > start) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,222 @@
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Leveled logging with per-category levels and an asynchronous console appender.
+ *
+ * Levels are set with -Dlog.level (default INFO) and per category with -Dlog.level.<category>, e.g.
+ * -Dlog.level.db=DEBUG. A disabled call costs one int comparison: pass a Supplier (or guard with
+ * isDebugEnabled()) so the message is only built when the level is on.
+ *
+ * Enabled records go into a fixed-size ring buffer (-Dlog.bufferSize, default 8192) and are written
+ * by one background thread, so the calling thread never waits on the console. If the writer falls
+ * behind, new records are dropped and counted rather than blocking. -Dlog.async=false writes
+ * synchronously instead (e.g. when debugging a crash).
+ */
+public final class Log {
+
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final Level DEFAULT_LEVEL = parseLevel(System.getProperty("log.level"), Level.INFO);
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("log.async", "true"));
+    private static final int BUFFER_SIZE = Integer.getInteger("log.bufferSize", 8192);
+
+    private static final ConcurrentHashMap<String, Log> LOGGERS = new ConcurrentHashMap<>();
+    private static final RingAppender APPENDER = ASYNC ? new RingAppender(BUFFER_SIZE) : null;
+
+    private final String category;
+    private volatile int threshold; // Level.ordinal(); records below it are discarded
+
+    private Log(String category) {
+        this.category = category;
+        this.threshold = parseLevel(System.getProperty("log.level." + category), DEFAULT_LEVEL).ordinal();
+    }
+
+    /** The logger for a category (e.g. "db", "auth"); one instance per category. */
+    public static Log get(String category) {
+        return LOGGERS.computeIfAbsent(category, Log::new);
+    }
+
+    /** Changes a category's level at runtime. */
+    public void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void trace(Supplier<String> message) { log(Level.TRACE, message, null); }
+    public void debug(Supplier<String> message) { log(Level.DEBUG, message, null); }
+    public void debug(String message) { log(Level.DEBUG, message, null); }
+    public void info(Supplier<String> message) { log(Level.INFO, message, null); }
+    public void info(String message) { log(Level.INFO, message, null); }
+    public void warn(String message) { log(Level.WARN, message, null); }
+    public void error(String message) { log(Level.ERROR, message, null); }
+    public void error(String message, Throwable thrown) { log(Level.ERROR, message, thrown); }
+
+    public void log(Level level, Supplier<String> message, Throwable thrown) {
+        if (level.ordinal() >= threshold) {
+            write(level, message.get(), thrown);
+        }
+    }
+
+    public void log(Level level, String message, Throwable thrown) {
+        if (level.ordinal() >= threshold) {
+            write(level, message, thrown);
+        }
+    }
+
+    private void write(Level level, String message, Throwable thrown) {
+        long now = System.currentTimeMillis();
+        if (APPENDER != null) {
+            APPENDER.append(now, level, category, message, thrown);
+        } else {
+            print(now, level, category, message, thrown, new StringBuilder(128));
+        }
+    }
+
+    private static Level parseLevel(String value, Level fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log level '" + value + "', using " + fallback);
+            return fallback;
+        }
+    }
+
+    private static final DateTimeFormatter TIME =
+        DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // "12:04:05.123 WARN  [db] message"; WARN and ERROR go to stderr
+    private static void print(long millis, Level level, String category, String message, Throwable thrown,
+                              StringBuilder line) {
+        line.setLength(0);
+        TIME.formatTo(Instant.ofEpochMilli(millis), line);
+        line.append(' ').append(level.name());
+        for (int i = level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(" [").append(category).append("] ").append(message);
+        PrintStream out = level.ordinal() >= Level.WARN.ordinal() ? System.err : System.out;
+        out.println(line);
+        if (thrown != null) {
+            thrown.printStackTrace(out);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Ring buffer of pending records (parallel arrays, nothing allocated per record) and its writer
+    // ----------------------------------------------------------------------
+    private static final class RingAppender implements Runnable {
+        private final long[] times;
+        private final Level[] levels;
+        private final String[] categories;
+        private final String[] messages;
+        private final Throwable[] errors;
+        private int head; // oldest pending record
+        private int size;
+        private long dropped;
+        private boolean writerWaiting;
+
+        RingAppender(int capacity) {
+            times = new long[capacity];
+            levels = new Level[capacity];
+            categories = new String[capacity];
+            messages = new String[capacity];
+            errors = new Throwable[capacity];
+
+            Thread writer = new Thread(this, "log-writer");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "log-flush"));
+        }
+
+        synchronized void append(long time, Level level, String category, String message, Throwable thrown) {
+            if (size == times.length) {
+                dropped++;
+                return;
+            }
+            int tail = (head + size) % times.length;
+            times[tail] = time;
+            levels[tail] = level;
+            categories[tail] = category;
+            messages[tail] = message;
+            errors[tail] = thrown;
+            size++;
+            if (writerWaiting) {
+                notify();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                synchronized (this) {
+                    while (size == 0) {
+                        writerWaiting = true;
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        } finally {
+                            writerWaiting = false;
+                        }
+                    }
+                }
+                drain();
+            }
+        }
+
+        // Writes everything pending; records are copied out under the lock and printed outside it
+        private void drain() {
+            StringBuilder line = new StringBuilder(128);
+            long[] batchTimes = new long[64];
+            Level[] batchLevels = new Level[64];
+            String[] batchCategories = new String[64];
+            String[] batchMessages = new String[64];
+            Throwable[] batchErrors = new Throwable[64];
+            while (true) {
+                int n;
+                long lost;
+                synchronized (this) {
+                    n = Math.min(size, batchTimes.length);
+                    for (int i = 0; i < n; i++) {
+                        int slot = (head + i) % times.length;
+                        batchTimes[i] = times[slot];
+                        batchLevels[i] = levels[slot];
+                        batchCategories[i] = categories[slot];
+                        batchMessages[i] = messages[slot];
+                        batchErrors[i] = errors[slot];
+                        messages[slot] = null;
+                        errors[slot] = null;
+                    }
+                    head = (head + n) % times.length;
+                    size -= n;
+                    lost = dropped;
+                    dropped = 0;
+                }
+                if (lost > 0) {
+                    print(System.currentTimeMillis(), Level.WARN, "log", lost + " log records dropped (buffer full)", null, line);
+                }
+                if (n == 0) {
+                    return;
+                }
+                for (int i = 0; i < n; i++) {
+                    print(batchTimes[i], batchLevels[i], batchCategories[i], batchMessages[i], batchErrors[i], line);
+                }
+            }
+        }
+    }
+}
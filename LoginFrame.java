@@ -116,65 +116,78 @@ public class LoginFrame extends JFrame implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         if (e.getSource() == loginButton) {
             String username = usernameField.getText().trim();
-            String password = new String(passwordField.getPassword()); 
+            char[] password = passwordField.getPassword(); // wiped by AuthService.login()
             passwordField.setText("");
             
-            // --- 1. AUTHENTICATION (Returns "ID|TYPE" string) ---
-            String authResult = AuthService.authenticateUser(username, password); 
+            // --- 1. AUTHENTICATION (ID, role and session token) ---
+            AuthResult user = AuthService.login(username, password); 
 
-            if (authResult != null) {
+            if (user != null) {
                 
-                // --- 2. PARSE THE RESULT STRING ---
-                int userId;
-                String userType;
-                try {
-                    // This parsing relies on AuthService returning "ID|TYPE"
-                    String[] parts = authResult.split("\\|");
-                    if (parts.length != 2) {
-                        // This catch block handles the error if AuthService returned an incorrect format
-                        throw new IllegalArgumentException("Invalid auth result format. Expected 'ID|TYPE'.");
-                    }
-                    
-                    userId = Integer.parseInt(parts[0]); 
-                    userType = parts[1]; 
-                    
-                } catch (Exception ex) {
-                    statusLabel.setText("Login Failed: Internal data error after authentication.");
-                    statusLabel.setForeground(Color.RED);
-                    ex.printStackTrace(); // Uncomment for detailed debugging
-                    return; 
-                }
-
                 // Login SUCCESSFUL
                 statusLabel.setText("Login Successful! Opening Dashboard...");
                 statusLabel.setForeground(new Color(0, 150, 0)); 
                 
-                // --- 3. OPEN DASHBOARD ---
-                if (userType.equalsIgnoreCase("doctor")) { 
-                    JOptionPane.showMessageDialog(this, "Doctor Login Successful! ID: " + userId, "Success", JOptionPane.INFORMATION_MESSAGE);
-                    new DoctorDashboardFrame(userId); 
-                    
-                } else if (userType.equalsIgnoreCase("patient")) { 
-                    JOptionPane.showMessageDialog(this, "Patient Login Successful! ID: " + userId, "Success", JOptionPane.INFORMATION_MESSAGE);
-                    new PatientDashboardFrame(userId); 
-                    
-                } else {
-                    statusLabel.setText("Login Failed: Unknown user type from database.");
-                    statusLabel.setForeground(Color.RED);
-                    return; 
+                // --- 2. OPEN DASHBOARD ---
+                switch (user.getRole()) {
+                    case DOCTOR:
+                        JOptionPane.showMessageDialog(this, "Doctor Login Successful! ID: " + user.getUserId(), "Success", JOptionPane.INFORMATION_MESSAGE);
+                        new DoctorDashboardFrame(user); 
+                        break;
+                    case PATIENT:
+                        JOptionPane.showMessageDialog(this, "Patient Login Successful! ID: " + user.getUserId(), "Success", JOptionPane.INFORMATION_MESSAGE);
+                        new PatientDashboardFrame(user); 
+                        break;
                 }
 
                 dispose(); 
 
             } else {
                 // Login FAILED (AuthService returned null)
-                statusLabel.setText("Invalid Username or Password.");
+                long lockedMs = AuthService.getLockoutRemainingMillis(username);
+                statusLabel.setText(lockedMs > 0
+                    ? "Too many failed attempts. Try again in " + ((lockedMs + 59999) / 60000) + " min."
+                    : "Invalid Username or Password.");
                 statusLabel.setForeground(Color.RED);
             }
         }
     }
 
+    /**
+     * The session ended (expired or logged out elsewhere): closes every open window, whose pending
+     * calls are then dropped, and shows the login screen again. Call on the EDT.
+     */
+    static void sessionExpired() {
+        for (Window window : Window.getWindows()) {
+            window.dispose();
+        }
+        JOptionPane.showMessageDialog(null, "Your session has expired. Please log in again.",
+                                      "Session Expired", JOptionPane.WARNING_MESSAGE);
+        new LoginFrame();
+    }
+
+    /**
+     * Starts DBManager (see DBManager.start()); on failure shows the reason and exits.
+     */
+    static void startDatabaseOrExit() {
+        try {
+            DBManager.start();
+        } catch (ExceptionInInitializerError e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e; // already logged by DBManager
+            JOptionPane.showMessageDialog(null, "Cannot start: " + cause.getMessage(),
+                                          "Database Error", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+    }
+
     public static void main(String[] args) {
+        startDatabaseOrExit();
+
+        // Warm the doctor directory and availability calendar off the EDT so the booking form opens without a table scan
+        new Thread(() -> {
+            DBManager.preloadDoctors();
+            DBManager.preloadAvailability();
+        }, "doctor-preload").start();
         SwingUtilities.invokeLater(() -> new LoginFrame());
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Throttles password guessing per username: after maxFailures failed logins within the window,
+ * further attempts are refused (without touching the database or hashing) until the window ends.
+ * A successful login clears the count.
+ */
+public class LoginRateLimiter {
+
+    private static final class Attempts {
+        int failures;
+        long windowStartMillis;
+    }
+
+    private final int maxFailures;
+    private final long windowMillis;
+    private final ConcurrentHashMap<String, Attempts> attempts = new ConcurrentHashMap<>();
+
+    public LoginRateLimiter(int maxFailures, long windowMillis) {
+        this.maxFailures = maxFailures;
+        this.windowMillis = windowMillis;
+    }
+
+    /** How long the username is still locked out, in ms; 0 if an attempt is allowed now. */
+    public long lockoutRemainingMillis(String username) {
+        Attempts a = attempts.get(key(username));
+        if (a == null) {
+            return 0;
+        }
+        synchronized (a) {
+            long remaining = a.windowStartMillis + windowMillis - System.currentTimeMillis();
+            return a.failures >= maxFailures && remaining > 0 ? remaining : 0;
+        }
+    }
+
+    public void onFailure(String username) {
+        long now = System.currentTimeMillis();
+        Attempts a = attempts.computeIfAbsent(key(username), k -> new Attempts());
+        synchronized (a) {
+            if (a.failures == 0 || now - a.windowStartMillis >= windowMillis) {
+                a.failures = 0;
+                a.windowStartMillis = now;
+            }
+            a.failures++;
+        }
+        if (attempts.size() > 10000) {
+            attempts.values().removeIf(old -> now - old.windowStartMillis >= windowMillis);
+        }
+    }
+
+    public void onSuccess(String username) {
+        attempts.remove(key(username));
+    }
+
+    private static String key(String username) {
+        return username == null ? "" : username.trim().toLowerCase();
+    }
+}
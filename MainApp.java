@@ -7,17 +7,32 @@ import javax.swing.*;
 
 public class MainApp {
     public static void main(String[] args) {
+        LoginFrame.startDatabaseOrExit();
+
+        // Warm the doctor directory and availability calendar off the EDT so the booking form opens without a table scan
+        new Thread(() -> {
+            DBManager.preloadDoctors();
+            DBManager.preloadAvailability();
+        }, "doctor-preload").start();
+
         // Run the GUI on the Event Dispatch Thread (EDT)
         SwingUtilities.invokeLater(() -> {
             
             // --- SIMULATION FOR TESTING DASHBOARD ---
-            // 1. Define the patientId as an INTEGER (e.g., 3, 4, 7 from your appointments table image).
-            int patientId = 3; 
+            // 1. Pass a test patient's credentials: -Ddev.username=... -Ddev.password=...
+            String username = System.getProperty("dev.username");
+            String password = System.getProperty("dev.password");
+            AuthResult user = username != null && password != null
+                ? AuthService.login(username, password.toCharArray()) : null;
             
-            // 2. Launch the Patient Dashboard directly.
-            new PatientDashboardFrame(patientId);
+            // 2. Launch the Patient Dashboard directly (sessions are only ever opened by a real login).
+            if (user != null && user.isPatient()) {
+                new PatientDashboardFrame(user);
+            } else {
+                new LoginFrame();
+            }
             
-            // Note: This bypasses the LoginFrame, but uses the correct INT ID.
+            // Note: This bypasses the LoginFrame.
         });
     }
 }
\ No newline at end of file
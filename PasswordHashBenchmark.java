@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Picks the PBKDF2 cost (-Dauth.hash.iterations) for this hardware (no database needed).
+ *
+ * For each candidate iteration count it times one verification, then a morning login burst: B
+ * logins arriving at once on a pool of T threads (the cores the login path may use). The latency
+ * of a login is measured from arrival to verified, so queueing behind the other logins counts.
+ * The highest count whose burst p99 stays under the target is recommended.
+ *
+ * Usage: java PasswordHashBenchmark [targetP99Ms] [burstSize] [threads]
+ */
+public class PasswordHashBenchmark {
+
+    private static final int[] CANDIDATES = {10000, 25000, 50000, 100000, 120000, 210000, 310000, 600000};
+
+    public static void main(String[] args) throws Exception {
+        double targetP99Ms = args.length > 0 ? Double.parseDouble(args[0]) : 1000;
+        int burst = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("Burst of %d logins on %d threads, target p99 %.0f ms%n", burst, threads, targetP99Ms);
+        int recommended = -1;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int iterations : CANDIDATES) {
+                PasswordHasher hasher = new PasswordHasher(iterations);
+                String stored = hasher.hash("correct horse".toCharArray());
+
+                // Single verification (after warm-up)
+                for (int i = 0; i < 3; i++) {
+                    hasher.verify("correct horse".toCharArray(), stored);
+                }
+                long[] single = new long[5];
+                for (int i = 0; i < single.length; i++) {
+                    long t0 = System.nanoTime();
+                    hasher.verify("correct horse".toCharArray(), stored);
+                    single[i] = System.nanoTime() - t0;
+                }
+
+                // Burst: everyone arrives at t0
+                long[] latency = new long[burst];
+                List<Future<Long>> done = new ArrayList<>(burst);
+                long t0 = System.nanoTime();
+                for (int i = 0; i < burst; i++) {
+                    done.add(pool.submit(() -> {
+                        hasher.verify("correct horse".toCharArray(), stored);
+                        return System.nanoTime();
+                    }));
+                }
+                for (int i = 0; i < burst; i++) {
+                    latency[i] = done.get(i).get() - t0;
+                }
+
+                Arrays.sort(single);
+                Arrays.sort(latency);
+                double p99 = latency[Math.min(burst - 1, (int) Math.ceil(burst * 0.99) - 1)] / 1e6;
+                boolean ok = p99 <= targetP99Ms;
+                if (ok) {
+                    recommended = iterations;
+                }
+                System.out.printf("%7d iterations  single=%7.1f ms  burst p50=%8.1f ms  p99=%8.1f ms  %s%n",
+                                  iterations, single[single.length / 2] / 1e6,
+                                  latency[burst / 2] / 1e6, p99, ok ? "ok" : "over target");
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        if (recommended > 0) {
+            System.out.println("Recommended: -Dauth.hash.iterations=" + recommended);
+        } else {
+            System.out.println("No candidate meets the target; allow more threads or a higher p99.");
+        }
+    }
+}
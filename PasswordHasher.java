@@ -0,0 +1,111 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted, adaptive password hashing (PBKDF2 with HMAC-SHA256), verified in Java so the password
+ * never goes into a WHERE clause.
+ *
+ * Stored form: "pbkdf2-sha256$iterations$salt$hash" (salt and hash Base64). The iteration count is
+ * the cost knob (-Dauth.hash.iterations); hashes made with a lower count, and legacy plaintext
+ * passwords, still verify and are reported by needsRehash() so AuthService can upgrade them on the
+ * next successful login. Pick the count with PasswordHashBenchmark.
+ */
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    public static final int DEFAULT_ITERATIONS = 120000;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1000) {
+            throw new IllegalArgumentException("PBKDF2 iterations must be at least 1000: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** Hashes a new password with a fresh random salt. */
+    public String hash(char[] password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + b64.encodeToString(salt) + "$" +
+               b64.encodeToString(derive(password, salt, iterations));
+    }
+
+    /**
+     * Checks a password against the stored value (a hash, or a legacy plaintext password).
+     * The comparison takes the same time wherever the first difference is.
+     */
+    public boolean verify(char[] password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            byte[] given = new String(password).getBytes(StandardCharsets.UTF_8);
+            return MessageDigest.isEqual(given, stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, derive(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            return false; // corrupt entry
+        }
+    }
+
+    /** True for plaintext or weaker-than-current hashes, which should be re-hashed after a successful login. */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX + "$");
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e); // part of every Java 8+ runtime
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /** Overwrites a password buffer once it is no longer needed. */
+    public static void wipe(char[] password) {
+        if (password != null) {
+            Arrays.fill(password, '\0');
+        }
+    }
+}
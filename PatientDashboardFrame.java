@@ -7,15 +7,17 @@ public class PatientDashboardFrame extends JFrame implements ActionListener {
 
     private final Color PRIMARY_COLOR = new Color(34, 139, 34); // Forest Green
     private final Color BACKGROUND_COLOR = new Color(245, 245, 245); // Off-White
-    private final int patientId; // Added to store the ID for new frames
+    private final AuthResult user; // The logged-in patient, passed on to new frames
+    private final int patientId;
 
     private JButton bookAppointmentButton;
     private JButton viewAppointmentsButton;
     private JButton logoutButton;
     
 
-    public PatientDashboardFrame(int patientId) {
-        this.patientId = patientId; // Store patient ID
+    public PatientDashboardFrame(AuthResult user) {
+        this.user = user;
+        this.patientId = user.getUserId();
         
         // 1. Frame Setup
         setTitle("Patient Dashboard - " + patientId);
@@ -105,6 +107,7 @@ public class PatientDashboardFrame extends JFrame implements ActionListener {
         if (e.getSource() == logoutButton) {
             int result = JOptionPane.showConfirmDialog(this, "Are you sure you want to log out?", "Confirm Logout", JOptionPane.YES_NO_OPTION);
             if (result == JOptionPane.YES_OPTION) {
+                AuthService.logout(user.getToken());
                 dispose(); // Close dashboard
                 // Since LoginFrame is assumed to exist:
                 // new LoginFrame(); 
@@ -112,10 +115,10 @@ public class PatientDashboardFrame extends JFrame implements ActionListener {
             }
         } else if (e.getSource() == bookAppointmentButton) {
             // Open the new appointment booking frame
-            new BookAppointmentFrame(this.patientId);
+            new BookAppointmentFrame(this.user);
         } else if (e.getSource() == viewAppointmentsButton) {
             // Open the new appointment viewing frame
-            new ViewAppointmentsFrame(this.patientId);
+            new ViewAppointmentsFrame(this.user);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small RRULE-like recurrence: weekly or every other week, ending after a number of visits or on a date.
+ * Used by DBManager.bookSeries() to expand a follow-up series in memory before it is checked and
+ * inserted as one batch.
+ *
+ * The text form is the RFC 5545 subset "FREQ=WEEKLY;INTERVAL=2;COUNT=10" or "FREQ=WEEKLY;UNTIL=20261231".
+ */
+public class RecurrenceRule {
+
+    /** Upper bound on a series (two years of weekly visits), so a typo cannot book thousands of rows. */
+    public static final int MAX_OCCURRENCES = 104;
+
+    public enum Frequency {
+        WEEKLY(1), BIWEEKLY(2);
+
+        private final int weeks;
+
+        Frequency(int weeks) {
+            this.weeks = weeks;
+        }
+
+        public int getWeeks() {
+            return weeks;
+        }
+    }
+
+    private static final DateTimeFormatter UNTIL_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Frequency frequency;
+    private final int count;        // 0 when the series ends on a date
+    private final LocalDate until;  // null when the series ends after a count
+
+    private RecurrenceRule(Frequency frequency, int count, LocalDate until) {
+        this.frequency = frequency;
+        this.count = count;
+        this.until = until;
+    }
+
+    /** A series of exactly count visits (the first one included). */
+    public static RecurrenceRule count(Frequency frequency, int count) {
+        if (count < 1 || count > MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("Occurrences must be between 1 and " + MAX_OCCURRENCES + ": " + count);
+        }
+        return new RecurrenceRule(frequency, count, null);
+    }
+
+    /** A series repeating up to and including the given date. */
+    public static RecurrenceRule until(Frequency frequency, LocalDate until) {
+        if (until == null) {
+            throw new IllegalArgumentException("Until date is required.");
+        }
+        return new RecurrenceRule(frequency, 0, until);
+    }
+
+    /**
+     * Parses "FREQ=WEEKLY[;INTERVAL=1|2](;COUNT=n|;UNTIL=yyyyMMdd)".
+     * @throws IllegalArgumentException if the rule is malformed or not supported.
+     */
+    public static RecurrenceRule parse(String rule) {
+        String freq = null;
+        int interval = 1;
+        Integer count = null;
+        LocalDate until = null;
+
+        try {
+            for (String part : rule.trim().toUpperCase().split(";")) {
+                String[] kv = part.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("Malformed recurrence part: " + part);
+                }
+                switch (kv[0]) {
+                    case "FREQ":     freq = kv[1]; break;
+                    case "INTERVAL": interval = Integer.parseInt(kv[1]); break;
+                    case "COUNT":    count = Integer.parseInt(kv[1]); break;
+                    case "UNTIL":    until = LocalDate.parse(kv[1].length() > 8 ? kv[1].substring(0, 8) : kv[1], UNTIL_FORMAT); break;
+                    default: throw new IllegalArgumentException("Unsupported recurrence part: " + kv[0]);
+                }
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed recurrence rule: " + rule, e);
+        }
+
+        if (!"WEEKLY".equals(freq)) {
+            throw new IllegalArgumentException("Only FREQ=WEEKLY is supported: " + rule);
+        }
+        if (interval != 1 && interval != 2) {
+            throw new IllegalArgumentException("Only INTERVAL=1 or 2 is supported: " + rule);
+        }
+        if ((count == null) == (until == null)) {
+            throw new IllegalArgumentException("Exactly one of COUNT or UNTIL is required: " + rule);
+        }
+        Frequency frequency = interval == 2 ? Frequency.BIWEEKLY : Frequency.WEEKLY;
+        return count != null ? count(frequency, count) : until(frequency, until);
+    }
+
+    /**
+     * Start times of every visit, beginning with first. An UNTIL series is capped at MAX_OCCURRENCES.
+     */
+    public List<LocalDateTime> expand(LocalDateTime first) {
+        List<LocalDateTime> starts = new ArrayList<>();
+        LocalDateTime next = first;
+        while (starts.size() < MAX_OCCURRENCES
+               && (until != null ? !next.toLocalDate().isAfter(until) : starts.size() < count)) {
+            starts.add(next);
+            next = next.plusWeeks(frequency.getWeeks());
+        }
+        return starts;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /** Number of visits, or 0 if the series ends on a date. */
+    public int getCount() {
+        return count;
+    }
+
+    /** Last possible date, or null if the series ends after a count. */
+    public LocalDate getUntil() {
+        return until;
+    }
+
+    @Override
+    public String toString() {
+        return "FREQ=WEEKLY;INTERVAL=" + frequency.getWeeks()
+               + (until != null ? ";UNTIL=" + until.format(UNTIL_FORMAT) : ";COUNT=" + count);
+    }
+}
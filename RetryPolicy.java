@@ -0,0 +1,57 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often, and how patiently, a version-checked update is retried after losing a race
+ * (see DBManager.updateStatus(int, AppointmentStatus, RetryPolicy)). Each retry re-reads the row
+ * and re-checks the transition, so a retry never overwrites a change it has not seen.
+ *
+ * Backoff is exponential with full jitter, so two writers that collided do not collide again in step.
+ */
+public class RetryPolicy {
+
+    /** A single attempt: report the conflict straight away. */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    /** Three attempts, waiting up to 10 ms and then 20 ms in between. */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(
+        Integer.getInteger("db.retry.maxAttempts", 3),
+        Long.getLong("db.retry.baseBackoffMs", 10L),
+        Long.getLong("db.retry.maxBackoffMs", 200L));
+
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    public RetryPolicy(int maxAttempts, long baseBackoffMs, long maxBackoffMs) {
+        if (maxAttempts < 1 || baseBackoffMs < 0 || maxBackoffMs < baseBackoffMs) {
+            throw new IllegalArgumentException("Invalid retry policy: " + maxAttempts + " attempts, backoff "
+                                               + baseBackoffMs + ".." + maxBackoffMs + " ms");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /** True if another attempt is allowed after the given (1-based) attempt failed. */
+    public boolean shouldRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /** Random wait in [0, min(max, base * 2^(attempt-1))] ms before the next attempt. */
+    public long backoffMillis(int attempt) {
+        if (baseBackoffMs == 0) {
+            return 0;
+        }
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    @Override
+    public String toString() {
+        return maxAttempts + " attempts, backoff " + baseBackoffMs + ".." + maxBackoffMs + " ms";
+    }
+}
@@ -0,0 +1,243 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal versioned schema migrations for the tables DBManager relies on.
+ *
+ * Applied versions are recorded in schema_migrations, so each migration runs once per database.
+ * MySQL commits DDL implicitly, so a migration is not transactional; "already exists" errors
+ * (for a DROP: "does not exist") are treated as success so a half-applied or hand-applied migration can be re-run safely.
+ */
+public class SchemaMigrator {
+
+    private static final Log LOG = Log.get("db.schema");
+
+    // MySQL error codes that mean "this change is already in place"
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+    private static final int ER_TABLE_EXISTS = 1050;
+    private static final int ER_CANT_DROP_FIELD_OR_KEY = 1091; // for DROP: already gone
+
+    // Double bookings named in requireNoDoubleBookings' error (the startup dialog); the log has all
+    private static final int MAX_LISTED_CONFLICTS = 10;
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        // getSortedAppointments / getPatientAppointmentsWithDoctors:
+        // WHERE patient_id = ? AND status = ? ORDER BY appointment_date, appointment_time
+        MIGRATIONS.add(new Migration(1, "Index appointments by patient, status, date, time",
+            "CREATE INDEX idx_appt_patient_status_datetime " +
+            "ON appointments (patient_id, status, appointment_date, appointment_time)"));
+
+        // getDoctorsTodayAppointments / countAppointmentsByStatus / getNextAppointment:
+        // WHERE doctor_id = ? AND appointment_date = ? [AND status = ?] ORDER BY appointment_time
+        MIGRATIONS.add(new Migration(2, "Index appointments by doctor, date, status, time",
+            "CREATE INDEX idx_appt_doctor_date_status_time " +
+            "ON appointments (doctor_id, appointment_date, status, appointment_time)"));
+
+        // tryBookAppointment: at most one active (booked / in progress) appointment per doctor slot.
+        // active_slot is NULL for final statuses, and NULLs never collide in a UNIQUE index,
+        // so cancelled or completed rows do not block re-booking the slot.
+        // The old booking code allowed double bookings, which would make the index fail (1062): the
+        // migration stops and lists them for staff to resolve first (see requireNoDoubleBookings).
+        MIGRATIONS.add(new Migration(3, "Unique active appointment per doctor slot",
+            SchemaMigrator::requireNoDoubleBookings,
+            "ALTER TABLE appointments ADD COLUMN active_slot TINYINT " +
+            "AS (CASE WHEN status IN ('booked', 'in progress') THEN 1 ELSE NULL END) STORED",
+            "CREATE UNIQUE INDEX uq_appt_doctor_active_slot " +
+            "ON appointments (doctor_id, appointment_date, appointment_time, active_slot)"));
+
+        // DoctorSchedule: weekly shifts (gaps between shifts are breaks) and dated closures.
+        // day_of_week follows java.time.DayOfWeek (1 = Monday); NULL exception times mean the whole day.
+        MIGRATIONS.add(new Migration(4, "Doctor schedule templates and exceptions",
+            "CREATE TABLE IF NOT EXISTS doctor_schedules (" +
+            "doctor_id INT NOT NULL, " +
+            "day_of_week TINYINT NOT NULL, " +
+            "start_time TIME NOT NULL, " +
+            "end_time TIME NOT NULL, " +
+            "slot_minutes SMALLINT NOT NULL DEFAULT 30, " +
+            "PRIMARY KEY (doctor_id, day_of_week, start_time))",
+            "CREATE TABLE IF NOT EXISTS doctor_schedule_exceptions (" +
+            "exception_id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "doctor_id INT NOT NULL, " +
+            "exception_date DATE NOT NULL, " +
+            "start_time TIME NULL, " +
+            "end_time TIME NULL, " +
+            "reason VARCHAR(200), " +
+            "INDEX idx_schedule_exception_doctor_date (doctor_id, exception_date))"));
+
+        // SlotReallocator: patients waiting for a doctor, served oldest request first.
+        // status: 'waiting' -> 'booked' (appointment_id set in the same transaction as the booking),
+        // or 'expired' once latest_date has passed
+        MIGRATIONS.add(new Migration(5, "Waitlist for freed appointment slots",
+            "CREATE TABLE IF NOT EXISTS waitlist (" +
+            "waitlist_id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "doctor_id INT NOT NULL, " +
+            "patient_id INT NOT NULL, " +
+            "earliest_date DATE NULL, " +
+            "latest_date DATE NULL, " +
+            "requested_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+            "status VARCHAR(20) NOT NULL DEFAULT 'waiting', " +
+            "appointment_id INT NULL, " +
+            "INDEX idx_waitlist_doctor_status_requested (doctor_id, status, requested_at))"));
+
+        // Optimistic concurrency: every status change bumps version, and DBManager.updateStatus()
+        // only applies a change if the row still has the version (and status) the caller read
+        MIGRATIONS.add(new Migration(6, "Row version for optimistic status updates",
+            "ALTER TABLE appointments ADD COLUMN version INT NOT NULL DEFAULT 0"));
+
+        // When each row last changed (the change poller itself reads the appointment_changes log, migration 8).
+        // Never read since the change log replaced it; dropped again by migration 10.
+        MIGRATIONS.add(new Migration(7, "Last-change timestamp on appointments",
+            "ALTER TABLE appointments ADD COLUMN updated_at TIMESTAMP(3) NOT NULL " +
+            "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)",
+            "CREATE INDEX idx_appt_updated_at ON appointments (updated_at)"));
+
+        // Append-only change log, written in the same transaction as each booking / status change.
+        // Readers keep the last change_id they applied and ask for newer entries (DBManager.fetchChangesSince).
+        MIGRATIONS.add(new Migration(8, "Appointment change log",
+            "CREATE TABLE IF NOT EXISTS appointment_changes (" +
+            "change_id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "appointment_id INT NOT NULL, " +
+            "doctor_id INT NOT NULL, " +
+            "patient_id INT NOT NULL, " +
+            "appointment_date DATE NULL, " +
+            "appointment_time TIME NULL, " +
+            "status VARCHAR(20) NOT NULL, " +
+            "version INT NOT NULL, " +
+            "changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+            "INDEX idx_changes_doctor (doctor_id, change_id), " +
+            "INDEX idx_changes_patient (patient_id, change_id))"));
+
+        // PasswordHasher: "pbkdf2-sha256$iterations$salt$hash" needs ~100 characters
+        MIGRATIONS.add(new Migration(9, "Room for hashed passwords",
+            "ALTER TABLE Users MODIFY COLUMN password VARCHAR(255) NOT NULL"));
+
+        // Nothing reads updated_at (migration 7) now that readers use the appointment_changes log,
+        // but every status UPDATE still had to maintain its index
+        MIGRATIONS.add(new Migration(10, "Drop the unused last-change timestamp",
+            "DROP INDEX idx_appt_updated_at ON appointments",
+            "ALTER TABLE appointments DROP COLUMN updated_at"));
+    }
+
+    /**
+     * Applies all pending migrations in version order, stopping at the first one that fails
+     * (later migrations may depend on it).
+     * @return The number of migrations applied by this call.
+     */
+    public static int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                               "version INT PRIMARY KEY, " +
+                               "description VARCHAR(200) NOT NULL, " +
+                               "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        Set<Integer> applied = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.add(rs.getInt(1));
+            }
+        }
+
+        int count = 0;
+        for (Migration m : MIGRATIONS) {
+            if (applied.contains(m.version)) {
+                continue;
+            }
+            if (m.prepare != null) {
+                m.prepare.run(conn);
+            }
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : m.statements) {
+                    try {
+                        stmt.executeUpdate(sql);
+                    } catch (SQLException e) {
+                        int code = e.getErrorCode();
+                        if (code != ER_DUP_KEYNAME && code != ER_DUP_FIELDNAME && code != ER_TABLE_EXISTS
+                                && code != ER_CANT_DROP_FIELD_OR_KEY) {
+                            throw new SQLException("Schema migration " + m.version + " failed: " + e.getMessage(), e);
+                        }
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO schema_migrations (version, description) VALUES (?, ?)")) {
+                pstmt.setInt(1, m.version);
+                pstmt.setString(2, m.description);
+                pstmt.executeUpdate();
+            }
+            LOG.info("Applied schema migration " + m.version + ": " + m.description);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Fails if a doctor slot holds more than one active appointment, listing every such appointment.
+     * Which booking keeps the slot (and telling the other patients) is for staff to decide, so this is
+     * not done automatically; once they are cancelled or moved, the next start applies the migration.
+     */
+    static void requireNoDoubleBookings(Connection conn) throws SQLException {
+        String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status " +
+                     "FROM appointments " +
+                     "WHERE status IN ('booked', 'in progress') " +
+                     "AND (doctor_id, appointment_date, appointment_time) IN (" +
+                     "SELECT doctor_id, appointment_date, appointment_time FROM appointments " +
+                     "WHERE status IN ('booked', 'in progress') " +
+                     "GROUP BY doctor_id, appointment_date, appointment_time HAVING COUNT(*) > 1) " +
+                     "ORDER BY doctor_id, appointment_date, appointment_time, appointment_id";
+        List<String> conflicts = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                conflicts.add("appointment " + rs.getInt("appointment_id") + " (patient " + rs.getInt("patient_id") +
+                              ", doctor " + rs.getInt("doctor_id") + ", " + rs.getDate("appointment_date") + " " +
+                              rs.getTime("appointment_time") + ", " + rs.getString("status") + ")");
+            }
+        }
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        for (String conflict : conflicts) {
+            LOG.error("Double booking: " + conflict);
+        }
+        int shown = Math.min(conflicts.size(), MAX_LISTED_CONFLICTS);
+        throw new SQLException(conflicts.size() + " active appointments share a doctor slot with another one. " +
+                               "Cancel or move all but one per slot, then restart: " +
+                               String.join("; ", conflicts.subList(0, shown)) +
+                               (shown < conflicts.size() ? "; ... (all are in the log)" : ""));
+    }
+
+    /** Check or data fix run before a migration's statements. */
+    interface Step {
+        void run(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step prepare;
+        final String[] statements;
+
+        Migration(int version, String description, String... statements) {
+            this(version, description, null, statements);
+        }
+
+        Migration(int version, String description, Step prepare, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.prepare = prepare;
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived login sessions, in memory. A successful login gets a random token (AuthResult); later
+ * calls present the token (validate()) instead of the password, so credentials are checked once per login
+ * rather than on every request. Sessions expire after the TTL without a validate() (each one renews the
+ * session) and are swept lazily.
+ */
+public class SessionStore {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, AuthResult> sessions = new ConcurrentHashMap<>();
+    private volatile long nextSweepMillis;
+
+    public SessionStore(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.nextSweepMillis = System.currentTimeMillis() + ttlMillis;
+    }
+
+    public AuthResult create(int userId, AuthResult.Role role) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        AuthResult session = new AuthResult(userId, role, token, now, now + ttlMillis);
+        sessions.put(token, session);
+        sweepIfDue(now);
+        return session;
+    }
+
+    /** The live session for the token, renewed for another TTL; null if unknown or expired. */
+    public AuthResult validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        AuthResult session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        AuthResult renewed = session.withExpiry(now + ttlMillis);
+        // Lost to a concurrent renewal (fine) or logout (then the token is gone)
+        return sessions.replace(token, session, renewed) ? renewed : sessions.get(token);
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    // At most once per TTL: drop every expired session
+    private void sweepIfDue(long now) {
+        if (now < nextSweepMillis) {
+            return;
+        }
+        nextSweepMillis = now + ttlMillis;
+        sessions.values().removeIf(s -> s.isExpired(now));
+    }
+}
@@ -0,0 +1,151 @@
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refills cancelled capacity: cancelAppointment() hands each freed slot to a bounded queue, and one
+ * background thread passes it to the handler (DBManager matches it against the doctor's waitlist
+ * and auto-books the longest-waiting patient).
+ *
+ * submit() never blocks the caller; when the queue is full the slot is dropped and counted, so a
+ * stalled database cannot back up cancellations. Counters and latencies are exposed via getStats().
+ */
+public class SlotReallocator {
+
+    private static final Log LOG = Log.get("waitlist");
+
+    /** The cancelled appointment whose slot became free, and when (System.nanoTime()). */
+    public static final class FreedSlot {
+        private final int appointmentId;
+        private final long freedAtNanos;
+
+        public FreedSlot(int appointmentId, long freedAtNanos) {
+            this.appointmentId = appointmentId;
+            this.freedAtNanos = freedAtNanos;
+        }
+
+        public int getAppointmentId() { return appointmentId; }
+        public long getFreedAtNanos() { return freedAtNanos; }
+    }
+
+    /** Tries to give a freed slot to someone else; returns true if it was re-booked. */
+    @FunctionalInterface
+    public interface Handler {
+        boolean reallocate(FreedSlot slot) throws SQLException;
+    }
+
+    private final BlockingQueue<FreedSlot> queue;
+    private final Handler handler;
+    private final Thread worker;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong rebooked = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalRebookNanos = new AtomicLong();
+    private final AtomicLong maxRebookNanos = new AtomicLong();
+    private final long startedAtNanos = System.nanoTime();
+
+    public SlotReallocator(int capacity, Handler handler) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.handler = handler;
+        this.worker = new Thread(this::run, "slot-reallocator");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /** Queues a freed slot; false (and counted as dropped) if the queue is full. */
+    public boolean submit(int appointmentId) {
+        if (queue.offer(new FreedSlot(appointmentId, System.nanoTime()))) {
+            submitted.incrementAndGet();
+            return true;
+        }
+        dropped.incrementAndGet();
+        LOG.warn("Slot reallocation queue full; freed slot of appointment " + appointmentId + " not reallocated.");
+        return false;
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            FreedSlot slot;
+            try {
+                slot = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (handler.reallocate(slot)) {
+                    long latency = System.nanoTime() - slot.freedAtNanos;
+                    rebooked.incrementAndGet();
+                    totalRebookNanos.addAndGet(latency);
+                    maxRebookNanos.accumulateAndGet(latency, Math::max);
+                }
+            } catch (SQLException | RuntimeException e) {
+                failures.incrementAndGet();
+                LOG.error("Error reallocating slot of appointment " + slot.appointmentId + ": " + e.getMessage());
+            }
+            processed.incrementAndGet();
+        }
+    }
+
+    /** Stops the worker; queued slots are discarded. */
+    public void shutdown() {
+        worker.interrupt();
+    }
+
+    public Stats getStats() {
+        return new Stats(queue.size(), queue.remainingCapacity(), submitted.get(), dropped.get(), processed.get(),
+                         rebooked.get(), failures.get(), totalRebookNanos.get(), maxRebookNanos.get(),
+                         System.nanoTime() - startedAtNanos);
+    }
+
+    // ----------------------------------------------------------------------
+    // Monitoring snapshot
+    // ----------------------------------------------------------------------
+    public static final class Stats {
+        public final int depth;
+        public final int remainingCapacity;
+        public final long submitted;
+        public final long dropped;
+        public final long processed;
+        public final long rebooked;
+        public final long failures;
+        public final long totalRebookNanos;
+        public final long maxRebookNanos;
+        public final long uptimeNanos;
+
+        Stats(int depth, int remainingCapacity, long submitted, long dropped, long processed, long rebooked,
+              long failures, long totalRebookNanos, long maxRebookNanos, long uptimeNanos) {
+            this.depth = depth;
+            this.remainingCapacity = remainingCapacity;
+            this.submitted = submitted;
+            this.dropped = dropped;
+            this.processed = processed;
+            this.rebooked = rebooked;
+            this.failures = failures;
+            this.totalRebookNanos = totalRebookNanos;
+            this.maxRebookNanos = maxRebookNanos;
+            this.uptimeNanos = uptimeNanos;
+        }
+
+        /** Freed slots handled per second since start. */
+        public double getThroughputPerSecond() {
+            return uptimeNanos == 0 ? 0.0 : processed / (uptimeNanos / 1e9);
+        }
+
+        /** Average time from cancellation to the slot being re-booked. */
+        public double getAverageRebookMillis() {
+            return rebooked == 0 ? 0.0 : totalRebookNanos / 1_000_000.0 / rebooked;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth=%d, remaining=%d, submitted=%d, dropped=%d, processed=%d, rebooked=%d, " +
+                                 "failures=%d, throughput=%.2f/s, avgRebookMs=%.1f, maxRebookMs=%.1f",
+                                 depth, remainingCapacity, submitted, dropped, processed, rebooked, failures,
+                                 getThroughputPerSecond(), getAverageRebookMillis(), maxRebookNanos / 1e6);
+        }
+    }
+}
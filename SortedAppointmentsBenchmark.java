@@ -0,0 +1,164 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Before/after benchmark for getSortedAppointments.
+ *
+ * Seeds a patient with N booked appointments at distinct doctor slots (the unique active-slot index
+ * allows no double bookings), in random order and in the year 2099, so real data is not touched,
+ * then times the old path (unordered SELECT + PriorityQueue drain) against the new one (ORDER BY
+ * served by idx_appt_patient_status_datetime, streamed into a list). The seeded rows are deleted
+ * afterwards. It still writes to the configured database: point -Ddb.url at a disposable one if in doubt.
+ *
+ * Usage: java -cp .:mysql-connector-j-9.4.0.jar SortedAppointmentsBenchmark [patientId] [rows] [iterations]
+ */
+public class SortedAppointmentsBenchmark {
+
+    private static final int SLOTS_PER_DAY = 20; // 08:00-18:00, every 30 minutes
+    private static final int SLOTS_PER_DOCTOR = 365 * SLOTS_PER_DAY;
+
+    public static void main(String[] args) throws SQLException {
+        int patientId = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        List<Doctor> doctors = DBManager.getAllDoctorsSorted();
+        if (doctors.isEmpty()) {
+            System.err.println("No doctors found; the benchmark needs at least one row in the doctors table.");
+            return;
+        }
+        if (rows > doctors.size() * SLOTS_PER_DOCTOR) {
+            System.err.println("At most " + doctors.size() * SLOTS_PER_DOCTOR + " rows fit into 2099 for "
+                               + doctors.size() + " doctors.");
+            return;
+        }
+
+        List<Integer> seeded = seed(patientId, doctors, rows);
+        try {
+            // Warm-up: JIT, connection pool and statement cache
+            for (int i = 0; i < 5; i++) {
+                legacySortedAppointments(patientId);
+                DBManager.getSortedAppointments(patientId);
+            }
+
+            long[] before = new long[iterations];
+            long[] after = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long t0 = System.nanoTime();
+                legacySortedAppointments(patientId);
+                long t1 = System.nanoTime();
+                DBManager.getSortedAppointments(patientId);
+                long t2 = System.nanoTime();
+                before[i] = t1 - t0;
+                after[i] = t2 - t1;
+            }
+
+            System.out.printf("Patient %d, %d booked rows, %d iterations%n", patientId, rows, iterations);
+            report("before (unordered SELECT + PriorityQueue drain)", before);
+            report("after  (ORDER BY on composite index, streamed)  ", after);
+        } finally {
+            cleanUp(seeded);
+        }
+    }
+
+    /** The pre-index implementation of getSortedAppointments, kept here only for comparison. */
+    private static List<Appointment> legacySortedAppointments(int patientId) throws SQLException {
+        String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, status " +
+                     "FROM appointments WHERE patient_id = ? AND status = 'booked'";
+        PriorityQueue<Appointment> sortedQueue = new PriorityQueue<>(Appointment.BY_START);
+
+        try (Connection conn = DBManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, patientId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sortedQueue.offer(new Appointment(
+                        rs.getInt("appointment_id"),
+                        rs.getInt("patient_id"),
+                        rs.getInt("doctor_id"),
+                        Appointment.toEpochMinute(rs.getObject("appointment_date", java.time.LocalDate.class),
+                                                  rs.getObject("appointment_time", java.time.LocalTime.class)),
+                        AppointmentStatus.fromDbValue(rs.getString("status"))));
+                }
+            }
+        }
+        List<Appointment> sortedList = new ArrayList<>();
+        while (!sortedQueue.isEmpty()) {
+            sortedList.add(sortedQueue.poll());
+        }
+        return sortedList;
+    }
+
+    // `rows` distinct (doctor, day, slot) triples of 2099, shuffled so the table order is not the date order
+    private static List<Integer> seed(int patientId, List<Doctor> doctors, int rows) throws SQLException {
+        String sql = "INSERT INTO appointments (doctor_id, patient_id, appointment_date, appointment_time, status) " +
+                     "VALUES (?, ?, ?, ?, 'booked')";
+        List<Integer> slots = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            slots.add(i);
+        }
+        Collections.shuffle(slots, new Random(42));
+        List<Integer> ids = new ArrayList<>(rows);
+
+        try (Connection conn = DBManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            conn.setAutoCommit(false);
+            try {
+                for (int slot : slots) {
+                    int doctor = slot / SLOTS_PER_DOCTOR;
+                    int dayOfYear = 1 + (slot % SLOTS_PER_DOCTOR) / SLOTS_PER_DAY;
+                    int minute = 8 * 60 + (slot % SLOTS_PER_DAY) * 30;
+                    pstmt.setInt(1, doctors.get(doctor).getId());
+                    pstmt.setInt(2, patientId);
+                    pstmt.setString(3, java.time.LocalDate.ofYearDay(2099, dayOfYear).toString());
+                    pstmt.setString(4, String.format("%02d:%02d", minute / 60, minute % 60));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return ids;
+    }
+
+    private static void cleanUp(List<Integer> ids) throws SQLException {
+        try (Connection conn = DBManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM appointments WHERE appointment_id = ?")) {
+            conn.setAutoCommit(false);
+            for (int id : ids) {
+                pstmt.setInt(1, id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static void report(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s  p50=%.2f ms  p90=%.2f ms  max=%.2f ms%n", label,
+                          sorted[sorted.length / 2] / 1e6,
+                          sorted[(int) (sorted.length * 0.9)] / 1e6,
+                          sorted[sorted.length - 1] / 1e6);
+    }
+}
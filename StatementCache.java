@@ -0,0 +1,226 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for ONE physical connection, keyed by SQL text.
+ *
+ * DBManager only issues a handful of distinct SQL strings, so keeping the prepared
+ * statements alive between leases saves the parse/prepare round trip on every call.
+ * Callers get a proxy whose close() hands the statement back to the cache. Either way, every
+ * execute call is timed into DBMetrics.
+ */
+public class StatementCache {
+
+    private final Connection raw;
+    private final int capacity;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final Runnable onBroken;
+
+    // DSA: LinkedHashMap in access order = LRU list + hash lookup in one structure
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public StatementCache(Connection raw, int capacity, AtomicLong hits, AtomicLong misses, Runnable onBroken) {
+        this.raw = raw;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.onBroken = onBroken;
+    }
+
+    /**
+     * Returns a cached statement for the SQL (and generated-keys mode), preparing it on a miss.
+     * If the cached statement is still checked out, an uncached one is prepared instead.
+     */
+    public synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            PreparedStatement ps = raw.prepareStatement(sql, autoGeneratedKeys);
+            if (entry != null) {
+                // Same SQL already checked out by this lease: hand out a plain statement
+                return (PreparedStatement) Proxy.newProxyInstance(
+                    StatementCache.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class},
+                    new Uncached(ps, owner));
+            }
+            entry = new Entry(ps);
+            entries.put(key, entry);
+            evictOverflow();
+        }
+        entry.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+            StatementCache.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class},
+            new Handle(entry, owner));
+    }
+
+    /** Marks every statement as free again; called when the owning lease is returned to the pool. */
+    public synchronized void releaseAll() {
+        List<Entry> checkedOut = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.inUse) {
+                checkedOut.add(entry);
+            }
+        }
+        checkedOut.forEach(this::giveBack);
+        evictOverflow();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void giveBack(Entry entry) {
+        entry.inUse = false;
+        entry.generation++; // invalidates any handle still pointing at this entry
+        try {
+            entry.ps.clearParameters();
+            entry.ps.clearBatch(); // a batch abandoned by an exception must not be replayed by the next user
+        } catch (SQLException e) {
+            // Drop statements we can no longer reset.
+            entries.values().remove(entry);
+            closeQuietly(entry.ps);
+        }
+    }
+
+    private void evictOverflow() {
+        List<Entry> evicted = new ArrayList<>();
+        Iterator<Entry> lruFirst = entries.values().iterator();
+        while (entries.size() - evicted.size() > capacity && lruFirst.hasNext()) {
+            Entry candidate = lruFirst.next();
+            if (!candidate.inUse) {
+                lruFirst.remove();
+                evicted.add(candidate);
+            }
+        }
+        evicted.forEach(e -> closeQuietly(e.ps));
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // Ignored: the statement is being discarded.
+        }
+    }
+
+    private static final class Entry {
+        final PreparedStatement ps;
+        boolean inUse;
+        int generation;
+
+        Entry(PreparedStatement ps) {
+            this.ps = ps;
+        }
+    }
+
+    /** One checkout of a cached statement; close() returns it to the cache instead of closing it. */
+    private final class Handle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private final int generation;
+
+        Handle(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+            this.generation = entry.generation;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            synchronized (StatementCache.this) {
+                boolean closed = entry.generation != generation;
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            giveBack(entry);
+                            evictOverflow();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || entry.ps.isClosed();
+                    case "getConnection":
+                        return owner;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached" + entry.ps;
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("Statement has already been closed.");
+                }
+            }
+            return invokeTimed(entry.ps, method, args);
+        }
+    }
+
+    /** A statement prepared outside the cache; close() really closes it. */
+    private final class Uncached implements InvocationHandler {
+        private final PreparedStatement ps;
+        private final Connection owner;
+
+        Uncached(PreparedStatement ps, Connection owner) {
+            this.ps = ps;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Uncached" + ps;
+                default:
+                    return invokeTimed(ps, method, args);
+            }
+        }
+    }
+
+    private Object invokeTimed(PreparedStatement ps, Method method, Object[] args) throws Throwable {
+        // execute(), executeQuery(), executeUpdate(), executeBatch(): the database round trip (see DBMetrics)
+        boolean timed = method.getName().startsWith("execute");
+        long start = timed ? System.nanoTime() : 0;
+        boolean failed = false;
+        try {
+            return method.invoke(ps, args);
+        } catch (InvocationTargetException e) {
+            failed = true;
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    onBroken.run();
+                }
+            }
+            throw cause;
+        } finally {
+            if (timed) {
+                DBMetrics.recordQuery(System.nanoTime() - start, failed);
+            }
+        }
+    }
+}
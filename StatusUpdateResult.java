@@ -0,0 +1,68 @@
+/**
+ * Outcome of a version-checked status change (DBManager.updateStatus()): applied, or why not.
+ *
+ * CONFLICT means the row changed since the caller read it (another user cancelled, completed or
+ * otherwise touched it); getCurrentStatus()/getCurrentVersion() then describe the row as it is now,
+ * so the caller can show it and decide again instead of overwriting.
+ */
+public class StatusUpdateResult {
+
+    public enum Outcome { UPDATED, CONFLICT, NOT_FOUND, ILLEGAL_TRANSITION, ERROR }
+
+    private final Outcome outcome;
+    private final AppointmentStatus currentStatus;
+    private final int currentVersion;
+    private final String message;
+
+    private StatusUpdateResult(Outcome outcome, AppointmentStatus currentStatus, int currentVersion, String message) {
+        this.outcome = outcome;
+        this.currentStatus = currentStatus;
+        this.currentVersion = currentVersion;
+        this.message = message;
+    }
+
+    public static StatusUpdateResult updated(AppointmentStatus status, int version) {
+        return new StatusUpdateResult(Outcome.UPDATED, status, version, null);
+    }
+
+    public static StatusUpdateResult conflict(AppointmentStatus status, int version) {
+        return new StatusUpdateResult(Outcome.CONFLICT, status, version,
+            "The appointment was changed by someone else (now " + status.getLabel() + ").");
+    }
+
+    public static StatusUpdateResult notFound() {
+        return new StatusUpdateResult(Outcome.NOT_FOUND, null, -1, "The appointment no longer exists.");
+    }
+
+    public static StatusUpdateResult illegalTransition(AppointmentStatus from, AppointmentStatus to, int version) {
+        return new StatusUpdateResult(Outcome.ILLEGAL_TRANSITION, from, version,
+            "A " + from.getLabel() + " appointment cannot be marked " + to.getLabel() + ".");
+    }
+
+    public static StatusUpdateResult error(String message) {
+        return new StatusUpdateResult(Outcome.ERROR, null, -1, message);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isUpdated() {
+        return outcome == Outcome.UPDATED;
+    }
+
+    /** The row's status after this call (the new one if UPDATED); null for NOT_FOUND and ERROR. */
+    public AppointmentStatus getCurrentStatus() {
+        return currentStatus;
+    }
+
+    /** The row's version after this call; -1 for NOT_FOUND and ERROR. */
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    /** Why the status was not changed; null if UPDATED. */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -5,14 +5,21 @@ import java.awt.event.ActionListener;
 import java.util.List;
 
 public class ViewAppointmentsFrame extends JFrame implements ActionListener {
+
+    private static final Log LOG = Log.get("ui");
     
-    private final int patientId; // Corrected to int
+    private final AuthResult user; // The logged-in patient
+    private final int patientId;
     private JList<String> appointmentList;
     private DefaultListModel<String> listModel; // <-- This is the variable that was null
     private JButton cancelButton;
 
-    public ViewAppointmentsFrame(int patientId) { // Constructor takes int
-        this.patientId = patientId;
+    // DB calls run off the EDT; cancelled when this window is disposed
+    private final AsyncDB.TaskGroup tasks = new AsyncDB.TaskGroup();
+
+    public ViewAppointmentsFrame(AuthResult user) {
+        this.user = user;
+        this.patientId = user.getUserId();
         setTitle("View/Cancel Appointments - " + patientId);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); 
         setSize(600, 400);
@@ -62,62 +69,47 @@ public class ViewAppointmentsFrame extends JFrame implements ActionListener {
     }
 
     /**
-     * Loads and displays appointments. Includes diagnostic checks for data integrity.
+     * Starts loading appointments in the background; the list shows a loading message until they arrive.
      */
     private void loadAppointments() {
         // This is the line that was crashing, but it is now safe because setupAppointmentList() ran first.
         listModel.clear(); 
-        
-        List<Appointment> appointments = null;
-        try {
-            appointments = DBManager.getSortedAppointments(this.patientId); 
-        } catch (Exception e) {
+        listModel.addElement("Loading appointments...");
+        cancelButton.setEnabled(false);
+
+        // One JOIN query: doctor name/specialization come back with each row
+        tasks.onEdt(this.user, AsyncDB.getPatientAppointmentsWithDoctors(this.user), this::showAppointments, e -> {
+            listModel.clear();
             listModel.addElement("!!! CRITICAL ERROR: Could not fetch appointments from database !!!");
-            System.err.println("Database fetch failed for patient ID " + this.patientId);
-            e.printStackTrace(); 
-            return; 
-        }
-        
+            LOG.error("Database fetch failed for patient ID " + this.patientId, e);
+        });
+    }
+
+    /**
+     * Displays loaded appointments. Includes diagnostic checks for data integrity.
+     */
+    private void showAppointments(List<AppointmentView> appointments) {
+        listModel.clear();
+        cancelButton.setEnabled(true);
+
         if (appointments == null || appointments.isEmpty()) {
             listModel.addElement("You have no scheduled appointments.");
         } else {
-            System.out.println("--- DEBUG: Rendering " + appointments.size() + " Appointments ---");
+            LOG.debug(() -> "Rendering " + appointments.size() + " appointments");
             
-            for (Appointment app : appointments) {
+            for (AppointmentView app : appointments) {
                 
-               // Inside ViewAppointmentsFrame.java -> loadAppointments()
-
-// Find this line (around L89):
-// System.out.printf("APPOINTMENT DATA: ID=%d, PatientID=%d, DoctorID=%d, DateTime='%s', Status=%s%n",
-
-// Replace it with this corrected version:
-
-// DIAGNOSTIC LOG: Print the raw Appointment data
-System.out.printf("APPOINTMENT DATA: ID=%d, PatientID=%d, DoctorID=%d, DateTime='%s', Status='%s'%n",
-    app.getId(), 
-    app.getDoctorId(),
-    app.getPatientId(), 
-    app.getDateTime(), 
-    app.getStatus()
-);
+                // DIAGNOSTIC LOG: the raw appointment data (-Dlog.level.ui=TRACE)
+                LOG.trace(() -> "Appointment ID=" + app.getId() + ", PatientID=" + app.getPatientId() +
+                                ", DoctorID=" + app.getDoctorId() + ", DateTime='" + app.getStart() +
+                                "', Status='" + app.getStatus().getLabel() + "'");
                 
-                // 1. Get Doctor Name (O(1) Hash Table Lookup)
-                Doctor doctor = DBManager.getDoctorById(app.getDoctorId()); 
-                String doctorName = (doctor != null) ? doctor.getName() : "Unknown Doctor (ID: " + app.getDoctorId() + ")"; 
+                // 1. Doctor Name (already joined into the row - no per-row lookup)
+                String doctorName = (app.getDoctorName() != null) ? app.getDoctorName() : "Unknown Doctor (ID: " + app.getDoctorId() + ")"; 
                 
-                // 2. Format Date/Time Safely
-                String fullDateTime = app.getDateTime();
-                String datePart = "N/A (Error)";
-                String timePart = "N/A (Error)";
-
-                // Check for the minimum expected length of "YYYY-MM-DD HH:MM" (16 chars)
-                if (fullDateTime != null && fullDateTime.length() >= 16) { 
-                    datePart = fullDateTime.substring(0, 10);
-                    timePart = fullDateTime.substring(11); 
-                } else if (fullDateTime != null) {
-                    datePart = fullDateTime;
-                    timePart = "";
-                }
+                // 2. Format Date/Time (only here, at render time; "N/A" if the row has no date)
+                String datePart = app.getDateText();
+                String timePart = app.getTimeText();
                 
                 // 3. Build the List Item
                 String listItem = String.format("ID: %d | Date: %s | Time: %s | Doctor: %s | Status: %s",
@@ -125,11 +117,10 @@ System.out.printf("APPOINTMENT DATA: ID=%d, PatientID=%d, DoctorID=%d, DateTime=
                     datePart, 
                     timePart, 
                     doctorName,
-                    app.getStatus()
+                    app.getStatus().getLabel()
                 );
                 listModel.addElement(listItem);
             }
-            System.out.println("--- DEBUG: Rendering Complete ---");
         }
     }
 
@@ -138,7 +129,7 @@ System.out.printf("APPOINTMENT DATA: ID=%d, PatientID=%d, DoctorID=%d, DateTime=
         if (e.getSource() == cancelButton) {
             
             String selectedItem = appointmentList.getSelectedValue();
-             if (selectedItem == null || selectedItem.startsWith("You have")) {
+             if (selectedItem == null || !selectedItem.startsWith("ID: ")) {
                 JOptionPane.showMessageDialog(this, "Please select an appointment to cancel.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
@@ -150,16 +141,30 @@ System.out.printf("APPOINTMENT DATA: ID=%d, PatientID=%d, DoctorID=%d, DateTime=
                 int result = JOptionPane.showConfirmDialog(this, "Confirm cancellation for appointment ID " + appointmentId + "?", "Confirm Cancellation", JOptionPane.YES_NO_OPTION);
                 
                 if (result == JOptionPane.YES_OPTION) {
-                    if (DBManager.cancelAppointment(appointmentId)) { 
-                        JOptionPane.showMessageDialog(this, "Appointment ID " + appointmentId + " has been requested for cancellation. List will now refresh.", "Cancellation Pending", JOptionPane.INFORMATION_MESSAGE);
-                        loadAppointments(); // Refresh the list
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Cancellation failed. Appointment may not be found or is already cancelled/completed.", "Error", JOptionPane.ERROR_MESSAGE);
-                    }
+                    cancelButton.setEnabled(false);
+                    tasks.onEdt(user, AsyncDB.cancelAppointment(user, appointmentId),
+                        cancelled -> showCancellationResult(appointmentId, cancelled),
+                        error -> showCancellationResult(appointmentId, false));
                 }
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Error processing selection: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
+
+    private void showCancellationResult(int appointmentId, boolean cancelled) {
+        cancelButton.setEnabled(true);
+        if (cancelled) { 
+            JOptionPane.showMessageDialog(this, "Appointment ID " + appointmentId + " has been requested for cancellation. List will now refresh.", "Cancellation Pending", JOptionPane.INFORMATION_MESSAGE);
+            loadAppointments(); // Refresh the list
+        } else {
+            JOptionPane.showMessageDialog(this, "Cancellation failed. Appointment may not be found or is already cancelled/completed.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Method handles onto the application classes, which live in the default package and so cannot be
+ * imported here. Looking a class up does not initialize it: DBManager only starts (connection pool,
+ * migrations) on the first call, after EmbeddedDatabase.start() has set -Ddb.url.
+ *
+ * The handles are static finals with erased (Object) types, so JIT-compiled benchmarks call them
+ * as directly as a normal method call.
+ */
+final class App {
+
+    static final Class<?> DB_MANAGER = type("DBManager");
+    static final Class<?> DOCTOR = type("Doctor");
+    static final Class<?> APPOINTMENT = type("Appointment");
+    static final Class<?> APPOINTMENT_STATUS = type("AppointmentStatus");
+    static final Class<?> DOCTOR_DIRECTORY = type("DoctorDirectory");
+
+    // --- DBManager ---
+    static final MethodHandle GET_CONNECTION = staticMethod(DB_MANAGER, "getConnection", Connection.class);
+    static final MethodHandle GET_DOCTOR_BY_ID = staticMethod(DB_MANAGER, "getDoctorById", DOCTOR, int.class);
+    static final MethodHandle LOAD_DOCTOR = privateStaticMethod(DB_MANAGER, "loadDoctor", DOCTOR, int.class);
+    static final MethodHandle GET_ALL_DOCTORS_SORTED = staticMethod(DB_MANAGER, "getAllDoctorsSorted", List.class);
+    static final MethodHandle REFRESH_DOCTOR_DIRECTORY = staticMethod(DB_MANAGER, "refreshDoctorDirectory", void.class);
+    // Package-private, not principal-checked entry points
+    static final MethodHandle GET_SORTED_APPOINTMENTS =
+        privateStaticMethod(DB_MANAGER, "getSortedAppointments", List.class, int.class);
+    static final MethodHandle BOOK_NEW_APPOINTMENT =
+        privateStaticMethod(DB_MANAGER, "bookNewAppointment", APPOINTMENT, int.class, int.class, LocalDateTime.class);
+
+    // --- Appointment ---
+    static final MethodHandle NEW_APPOINTMENT = constructor(APPOINTMENT,
+        int.class, int.class, int.class, long.class, APPOINTMENT_STATUS, int.class);
+    static final MethodHandle TO_EPOCH_MINUTE =
+        staticMethod(APPOINTMENT, "toEpochMinute", long.class, LocalDate.class, LocalTime.class);
+    static final MethodHandle APPOINTMENT_TO_STRING = virtualMethod(APPOINTMENT, "toString", String.class);
+    static final MethodHandle APPOINTMENT_TIME_TEXT = virtualMethod(APPOINTMENT, "getTimeText", String.class);
+
+    private App() {
+    }
+
+    /** AppointmentStatus.valueOf(name). */
+    static Object status(String name) {
+        return enumConstant(APPOINTMENT_STATUS, name);
+    }
+
+    /** Appointment.BY_START. */
+    @SuppressWarnings("unchecked")
+    static Comparator<Object> appointmentsByStart() {
+        return (Comparator<Object>) staticField(APPOINTMENT, "BY_START");
+    }
+
+    /** DoctorDirectory.BY_SPECIALIZATION_THEN_NAME. */
+    @SuppressWarnings("unchecked")
+    static Comparator<Object> doctorsBySpecializationThenName() {
+        return (Comparator<Object>) staticField(DOCTOR_DIRECTORY, "BY_SPECIALIZATION_THEN_NAME");
+    }
+
+    // ----------------------------------------------------------------------
+    // Lookup helpers; every handle is adapted to Object in place of application types
+    // ----------------------------------------------------------------------
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name, false, App.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Application class not on the classpath: " + name, e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+        try {
+            return erase(MethodHandles.publicLookup().findStatic(owner, name, MethodType.methodType(returnType, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle privateStaticMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+            return erase(lookup.findStatic(owner, name, MethodType.methodType(returnType, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle virtualMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... params) {
+        try {
+            return erase(MethodHandles.publicLookup().findVirtual(owner, name, MethodType.methodType(returnType, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... params) {
+        try {
+            return erase(MethodHandles.publicLookup().findConstructor(owner, MethodType.methodType(void.class, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No constructor for " + owner.getName(), e);
+        }
+    }
+
+    private static Object staticField(Class<?> owner, String name) {
+        try {
+            return owner.getField(name).get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + owner.getName() + "." + name, e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumConstant(Class<?> type, String name) {
+        return Enum.valueOf((Class) type, name);
+    }
+
+    // Application types (declared in the default package) become Object; JDK types stay as they are
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (type.parameterType(i).getPackageName().isEmpty() && !type.parameterType(i).isPrimitive()) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        Class<?> result = type.returnType();
+        if (result.getPackageName().isEmpty() && !result.isPrimitive()) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Appointment value object (no database): construction from a row's values, and the string
+ * building done when a list is rendered (toString(), getTimeText()).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentBenchmark {
+
+    private Object booked;
+    private Object appointment;
+    private LocalDate date;
+    private LocalTime time;
+    private int id;
+
+    @Setup
+    public void setUp() throws Throwable {
+        booked = App.status("BOOKED");
+        date = LocalDate.of(2030, 5, 17);
+        time = LocalTime.of(14, 30);
+        appointment = construct();
+    }
+
+    @Benchmark
+    public Object construct() throws Throwable {
+        long start = (long) App.TO_EPOCH_MINUTE.invokeExact(date, time);
+        return (Object) App.NEW_APPOINTMENT.invokeExact(++id, 3, 7, start, booked, 0);
+    }
+
+    @Benchmark
+    public String toDisplayString() throws Throwable {
+        return (String) App.APPOINTMENT_TO_STRING.invokeExact(appointment);
+    }
+
+    @Benchmark
+    public String timeText() throws Throwable {
+        return (String) App.APPOINTMENT_TIME_TEXT.invokeExact(appointment);
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A patient's sorted appointment list, two ways (the JMH counterpart of SortedAppointmentsBenchmark):
+ *
+ *   sqlOrderBy  - DBManager.getSortedAppointments: ORDER BY served by idx_appt_patient_status_datetime,
+ *                 rows appended as they arrive
+ *   queueDrain  - the original approach: unordered SELECT, every row offered to a PriorityQueue
+ *                 (Appointment.BY_START), then drained into a list
+ *
+ * The patient's rows are inserted in random order so the table order is not already the date order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentSortBenchmark {
+
+    private static final int DOCTORS = 50;
+    private static final int PATIENT_ID = 900001;
+
+    private static final String UNORDERED_SQL =
+        "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_time, version " +
+        "FROM appointments WHERE patient_id = ? AND status = 'booked'";
+
+    @Param({"10", "100", "5000"})
+    public int appointments;
+
+    private Object booked;
+    private Comparator<Object> byStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        EmbeddedDatabase.start(DOCTORS);
+        EmbeddedDatabase.seedPatientAppointments(PATIENT_ID, appointments, DOCTORS, 7);
+        booked = App.status("BOOKED");
+        byStart = App.appointmentsByStart();
+
+        // Both sides must return the seeded rows, or the comparison times an error path
+        int sorted = sqlOrderBy().size();
+        int drained = queueDrain().size();
+        if (sorted != appointments || drained != appointments) {
+            throw new IllegalStateException("Expected " + appointments + " appointments, got " + sorted +
+                                            " (sqlOrderBy) and " + drained + " (queueDrain)");
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Object> sqlOrderBy() throws Throwable {
+        return (List<Object>) App.GET_SORTED_APPOINTMENTS.invokeExact(PATIENT_ID);
+    }
+
+    @Benchmark
+    public List<Object> queueDrain() throws Throwable {
+        PriorityQueue<Object> queue = new PriorityQueue<>(byStart);
+        try (Connection conn = EmbeddedDatabase.connection();
+             PreparedStatement pstmt = conn.prepareStatement(UNORDERED_SQL)) {
+            pstmt.setInt(1, PATIENT_ID);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long start = (long) App.TO_EPOCH_MINUTE.invokeExact(
+                        rs.getObject("appointment_date", LocalDate.class),
+                        rs.getObject("appointment_time", LocalTime.class));
+                    queue.add((Object) App.NEW_APPOINTMENT.invokeExact(
+                        rs.getInt("appointment_id"), rs.getInt("patient_id"), rs.getInt("doctor_id"),
+                        start, booked, rs.getInt("version")));
+                }
+            }
+        }
+        List<Object> sorted = new ArrayList<>(queue.size());
+        while (!queue.isEmpty()) {
+            sorted.add(queue.poll());
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * bookNewAppointment throughput: the in-memory conflict check, the INSERT + change-log transaction
+ * and the event fan-out. Every call books a different free slot, walking day by day through every
+ * doctor's 16 half-hour clinic slots, so each doctor-day is loaded once and then booked 16 times
+ * (as on a busy morning). Run with more threads (-t) to see contention on the pool and the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class BookingBenchmark {
+
+    private static final int DOCTORS = 2000;
+    private static final int SLOTS_PER_DAY = 16; // 09:00-17:00, 30 minutes (DBManager defaults)
+
+    private final AtomicLong nextSlot = new AtomicLong();
+    private LocalDate firstDay;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        EmbeddedDatabase.start(DOCTORS);
+        firstDay = LocalDate.now().plusDays(1);
+    }
+
+    @Benchmark
+    public Object bookNewAppointment() throws Throwable {
+        long n = nextSlot.getAndIncrement();
+        int slot = (int) (n % SLOTS_PER_DAY);
+        int doctorId = 1 + (int) (n / SLOTS_PER_DAY % DOCTORS);
+        long day = n / SLOTS_PER_DAY / DOCTORS;
+        LocalDateTime start = firstDay.plusDays(day).atTime(9 + slot / 2, (slot % 2) * 30);
+        int patientId = 1 + (int) (n % 10000);
+        return (Object) App.BOOK_NEW_APPOINTMENT.invokeExact(patientId, doctorId, start);
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Doctor lookup and the sorted doctor list.
+ *
+ *   getDoctorByIdHot      - served by the in-memory directory (the README's "O(1) lookup")
+ *   getDoctorByIdCold     - what a cache miss costs: the primary-key SELECT and mapping (DBManager.loadDoctor)
+ *   getAllDoctorsSorted   - the pre-sorted snapshot the booking form reads
+ *   sortBySpecialization  - the comparator alone, sorting a copy of the list
+ *   rebuildDirectory      - table scan + sort, as on startup or after refreshDoctorDirectory()
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoctorLookupBenchmark {
+
+    @Param({"100", "1000"})
+    public int doctors;
+
+    private List<Object> snapshot;
+    private Comparator<Object> bySpecialization;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        EmbeddedDatabase.start(doctors);
+        snapshot = getAllDoctorsSorted();
+        bySpecialization = App.doctorsBySpecializationThenName();
+    }
+
+    // Cycles through every doctor so the lookups do not all hit one cache line
+    private int nextId() {
+        next = next == doctors ? 1 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public Object getDoctorByIdHot() throws Throwable {
+        return (Object) App.GET_DOCTOR_BY_ID.invokeExact(nextId());
+    }
+
+    @Benchmark
+    public Object getDoctorByIdCold() throws Throwable {
+        return (Object) App.LOAD_DOCTOR.invokeExact(nextId());
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Object> getAllDoctorsSorted() throws Throwable {
+        return (List<Object>) App.GET_ALL_DOCTORS_SORTED.invokeExact();
+    }
+
+    @Benchmark
+    public List<Object> sortBySpecialization() {
+        List<Object> copy = new ArrayList<>(snapshot);
+        copy.sort(bySpecialization);
+        return copy;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Object> rebuildDirectory() throws Throwable {
+        App.REFRESH_DOCTOR_DIRECTORY.invokeExact();
+        return getAllDoctorsSorted();
+    }
+}
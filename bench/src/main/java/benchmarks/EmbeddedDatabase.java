@@ -0,0 +1,174 @@
+package benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Database for the benchmarks: by default an in-memory H2 database in MySQL mode, started inside
+ * the benchmark JVM, so the suite runs offline and every fork starts from the same data.
+ *
+ * start() must run before the first DBManager call: it points DBManager at the database through
+ * -Ddb.url / -Ddb.user / -Ddb.password, turns off the MySQL-only schema migrations and the change
+ * poller, creates the schema (the end state of SchemaMigrator, in H2 syntax) and seeds doctors.
+ *
+ * To measure against a real server instead, pass -Ddb.url (plus -Ddb.user / -Ddb.password) to the
+ * benchmark JVM (-jvmArgsAppend). That database must already have the schema, and must be disposable:
+ * the suite inserts doctors and appointments into it.
+ */
+final class EmbeddedDatabase {
+
+    static final String H2_URL =
+        "jdbc:h2:mem:appointment_booking_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    static final String[] SPECIALIZATIONS = {
+        "Cardiology", "Dermatology", "ENT", "General Medicine", "Neurology",
+        "Orthopedics", "Pediatrics", "Psychiatry", "Radiology", "Urology"
+    };
+
+    private static boolean started;
+
+    private EmbeddedDatabase() {
+    }
+
+    /** Starts the database (once per JVM) with doctors 1..doctorCount. */
+    static synchronized void start(int doctorCount) throws SQLException {
+        if (started) {
+            return;
+        }
+        String url = System.getProperty("db.url", H2_URL);
+        boolean embedded = url.startsWith("jdbc:h2:mem:");
+        System.setProperty("db.url", url);
+        if (embedded) {
+            System.setProperty("db.user", "sa");
+            System.setProperty("db.password", "");
+            System.setProperty("db.migrate", "false");
+        }
+        System.setProperty("changes.pollIntervalMs", "0");
+        System.setProperty("log.level", System.getProperty("log.level", "WARN"));
+
+        try (Connection conn = DriverManager.getConnection(url, System.getProperty("db.user"),
+                                                           System.getProperty("db.password"))) {
+            if (embedded) {
+                createSchema(conn);
+            }
+            seedDoctors(conn, doctorCount);
+        }
+        started = true;
+    }
+
+    /** Raw connection from DBManager's pool (return it with close()). */
+    static Connection connection() throws Throwable {
+        return (Connection) App.GET_CONNECTION.invokeExact();
+    }
+
+    /**
+     * Inserts `rows` booked appointments for one patient at distinct slots in 2099, in random order
+     * (so the table order is not the date order). The rows stay for the rest of the fork.
+     */
+    static void seedPatientAppointments(int patientId, int rows, int doctorCount, long seed) throws Throwable {
+        List<int[]> slots = new ArrayList<>(rows); // {doctorId, dayOffset, minuteOfDay}
+        for (int i = 0; i < rows; i++) {
+            int slot = i % 16;
+            int day = i / 16;
+            slots.add(new int[] {1 + day % doctorCount, day / doctorCount, 9 * 60 + slot * 30});
+        }
+        Collections.shuffle(slots, new Random(seed));
+
+        String sql = "INSERT INTO appointments (doctor_id, patient_id, appointment_date, appointment_time, status) " +
+                     "VALUES (?, ?, ?, ?, 'booked')";
+        LocalDate base = LocalDate.of(2099, 1, 1);
+        try (Connection conn = connection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int[] s : slots) {
+                pstmt.setInt(1, s[0]);
+                pstmt.setInt(2, patientId);
+                pstmt.setObject(3, base.plusDays(s[1]));
+                pstmt.setObject(4, LocalTime.of(s[2] / 60, s[2] % 60));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void seedDoctors(Connection conn, int doctorCount) throws SQLException {
+        Random random = new Random(42);
+        String sql = "INSERT INTO doctors (doctor_id, name, specialization, contact) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int id = 1; id <= doctorCount; id++) {
+                pstmt.setInt(1, id);
+                pstmt.setString(2, "Dr. " + (char) ('A' + random.nextInt(26)) + " Doctor" + id);
+                pstmt.setString(3, SPECIALIZATIONS[random.nextInt(SPECIALIZATIONS.length)]);
+                pstmt.setString(4, "555-" + (1000 + id % 9000));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // The MySQL schema after all SchemaMigrator migrations, in a form H2 accepts
+    private static void createSchema(Connection conn) throws SQLException {
+        String[] ddl = {
+            "CREATE TABLE IF NOT EXISTS Users (" +
+            "user_id INT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(50) NOT NULL UNIQUE, " +
+            "password VARCHAR(255) NOT NULL, user_type VARCHAR(20) NOT NULL)",
+
+            "CREATE TABLE IF NOT EXISTS doctors (" +
+            "doctor_id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL, " +
+            "specialization VARCHAR(100), contact VARCHAR(50))",
+
+            "CREATE TABLE IF NOT EXISTS appointments (" +
+            "appointment_id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "patient_id INT NOT NULL, doctor_id INT NOT NULL, " +
+            "appointment_date DATE, appointment_time TIME, " +
+            "status VARCHAR(20) NOT NULL DEFAULT 'booked', " +
+            "version INT NOT NULL DEFAULT 0, " +
+            "active_slot TINYINT GENERATED ALWAYS AS " +
+            "(CASE WHEN status IN ('booked', 'in progress') THEN 1 ELSE NULL END))",
+            "CREATE INDEX IF NOT EXISTS idx_appt_patient_status_datetime " +
+            "ON appointments (patient_id, status, appointment_date, appointment_time)",
+            "CREATE INDEX IF NOT EXISTS idx_appt_doctor_date_status_time " +
+            "ON appointments (doctor_id, appointment_date, status, appointment_time)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS uq_appt_doctor_active_slot " +
+            "ON appointments (doctor_id, appointment_date, appointment_time, active_slot)",
+
+            "CREATE TABLE IF NOT EXISTS doctor_schedules (" +
+            "doctor_id INT NOT NULL, day_of_week TINYINT NOT NULL, start_time TIME NOT NULL, " +
+            "end_time TIME NOT NULL, slot_minutes SMALLINT NOT NULL DEFAULT 30, " +
+            "PRIMARY KEY (doctor_id, day_of_week, start_time))",
+            "CREATE TABLE IF NOT EXISTS doctor_schedule_exceptions (" +
+            "exception_id INT AUTO_INCREMENT PRIMARY KEY, doctor_id INT NOT NULL, " +
+            "exception_date DATE NOT NULL, start_time TIME NULL, end_time TIME NULL, reason VARCHAR(200))",
+
+            "CREATE TABLE IF NOT EXISTS waitlist (" +
+            "waitlist_id INT AUTO_INCREMENT PRIMARY KEY, doctor_id INT NOT NULL, patient_id INT NOT NULL, " +
+            "earliest_date DATE NULL, latest_date DATE NULL, " +
+            "requested_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+            "status VARCHAR(20) NOT NULL DEFAULT 'waiting', appointment_id INT NULL)",
+
+            "CREATE TABLE IF NOT EXISTS appointment_changes (" +
+            "change_id BIGINT AUTO_INCREMENT PRIMARY KEY, appointment_id INT NOT NULL, " +
+            "doctor_id INT NOT NULL, patient_id INT NOT NULL, appointment_date DATE NULL, " +
+            "appointment_time TIME NULL, status VARCHAR(20) NOT NULL, version INT NOT NULL, " +
+            "changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))",
+            "CREATE INDEX IF NOT EXISTS idx_changes_doctor ON appointment_changes (doctor_id, change_id)",
+            "CREATE INDEX IF NOT EXISTS idx_changes_patient ON appointment_changes (patient_id, change_id)"
+        };
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : ddl) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}